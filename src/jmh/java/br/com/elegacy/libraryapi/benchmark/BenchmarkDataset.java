@@ -0,0 +1,90 @@
+package br.com.elegacy.libraryapi.benchmark;
+
+import java.io.StringReader;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import br.com.elegacy.libraryapi.LibraryApiApplication;
+import br.com.elegacy.libraryapi.service.BookImportService;
+import br.com.elegacy.libraryapi.service.impl.BookServiceImpl;
+import br.com.elegacy.libraryapi.service.impl.LoanServiceImpl;
+
+/**
+ * Starts the application without the web server on its own in-memory H2
+ * database and fills it with a generated catalog, so every run of a benchmark
+ * measures the same data.
+ * <p>
+ * Book {@code n} is titled "Title n", written by "Author n % 100" and has the
+ * isbn "isbn-n". The first half of the books was loaned and returned once, each
+ * loan to "Customer n % 1000" and taken {@code n % 60} days ago; the second half
+ * was never loaned. No book is loaned at the start.
+ */
+final class BenchmarkDataset {
+
+	static final String BENCHMARK_CUSTOMER = "Benchmark";
+
+	private static final int LOAN_BATCH = 1000;
+
+	private BenchmarkDataset() {
+	}
+
+	static ConfigurableApplicationContext start(String name, int books) {
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryApiApplication.class)
+				.web(WebApplicationType.NONE)
+				.properties("spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+						"spring.jmx.enabled=false",
+						"application.outbox.delay=3600000",
+						"application.jobs.late-loans.cron=-",
+						"logging.file.name=",
+						"logging.level.root=warn")
+				.run();
+
+		String catalog = IntStream.range(0, books)
+				.mapToObj(n -> "{\"title\":\"Title " + n + "\",\"author\":\"Author " + n % 100 + "\",\"isbn\":\"isbn-"
+						+ n + "\"}")
+				.collect(Collectors.joining("\n"));
+		context.getBean(BookImportService.class).importBooks(new StringReader(catalog), BookImportService.Format.NDJSON);
+
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		List<Long> bookIds = jdbcTemplate.queryForList("select id from book order by id", Long.class);
+
+		List<Object[]> loans = new ArrayList<>(LOAN_BATCH);
+		for (int n = 0; n < bookIds.size() / 2; n++) {
+			loans.add(new Object[] { "Customer " + n % 1000, "customer" + n % 1000 + "@email.com", bookIds.get(n),
+					Date.valueOf(LocalDate.now().minusDays(n % 60)) });
+			if (loans.size() == LOAN_BATCH) {
+				insertLoans(jdbcTemplate, loans);
+				loans.clear();
+			}
+		}
+		insertLoans(jdbcTemplate, loans);
+
+		context.getBean(BookServiceImpl.class).rebuildSearchIndex();
+		context.getBean(LoanServiceImpl.class).rebuildOverdueLoanIndex();
+
+		return context;
+	}
+
+	/**
+	 * Returns every loan a benchmark registered, freeing their books to be loaned
+	 * again.
+	 */
+	static void returnBenchmarkLoans(ConfigurableApplicationContext context) {
+		context.getBean(JdbcTemplate.class).update("update loan set status = 'RETURNED', open_book_id = null, "
+				+ " returned_at = current_timestamp where customer = ? and status = 'OPEN'", BENCHMARK_CUSTOMER);
+	}
+
+	private static void insertLoans(JdbcTemplate jdbcTemplate, List<Object[]> loans) {
+		jdbcTemplate.batchUpdate("insert into loan (customer, customer_email, book_id, loan_date, status, "
+				+ " returned_at, version) values (?, ?, ?, ?, 'RETURNED', current_timestamp, 0)", loans);
+	}
+}
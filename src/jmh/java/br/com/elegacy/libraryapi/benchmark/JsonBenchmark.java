@@ -0,0 +1,71 @@
+package br.com.elegacy.libraryapi.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.elegacy.libraryapi.api.dto.BookDTO;
+import br.com.elegacy.libraryapi.api.dto.LoanDTO;
+
+/**
+ * Serializes a page of loans the way the loan listing answers it, with an
+ * object mapper built like the one of the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+	@Param({ "20", "100" })
+	private int pageSize;
+
+	private ObjectMapper objectMapper;
+
+	private Page<LoanDTO> page;
+
+	@Setup
+	public void setUp() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+		List<LoanDTO> loans = new ArrayList<>(pageSize);
+		for (long id = 1; id <= pageSize; id++) {
+			BookDTO book = BookDTO.builder().id(id).title("Title " + id).author("Author " + id).isbn("isbn-" + id)
+					.build();
+			loans.add(LoanDTO.builder()
+					.id(id)
+					.isbn(book.getIsbn())
+					.customer("Customer " + id)
+					.email("customer" + id + "@email.com")
+					.book(book)
+					.build());
+		}
+		page = new PageImpl<>(loans, PageRequest.of(0, pageSize), 10_000);
+	}
+
+	@Benchmark
+	public byte[] serializeLoanPage() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(page);
+	}
+}
@@ -0,0 +1,103 @@
+package br.com.elegacy.libraryapi.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.elegacy.libraryapi.api.config.RequestLogSampler;
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+
+/**
+ * What the info log of a request costs the thread handling it: written to the
+ * file on that thread as before, handed to an asynchronous appender, and handed
+ * to it after the per-endpoint sampling of {@code logback-spring.xml}. Past the
+ * rate the disk takes, the asynchronous appender drops events instead of
+ * slowing the requests down, which is what this measures once its queue fills.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+	private static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%t] %-40.40logger{39} : %m%n";
+
+	@Param({ "sync", "async", "async-sampled" })
+	private String appender;
+
+	private LoggerContext context;
+	private Logger logger;
+	private Path file;
+
+	@Setup
+	public void setUp() throws IOException {
+		file = Files.createTempFile("logging-benchmark", ".log");
+		context = new LoggerContext();
+
+		PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+		encoder.setContext(context);
+		encoder.setPattern(PATTERN);
+		encoder.start();
+
+		FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+		fileAppender.setContext(context);
+		fileAppender.setFile(file.toString());
+		fileAppender.setEncoder(encoder);
+		fileAppender.start();
+
+		Appender<ILoggingEvent> root = fileAppender;
+		if (!appender.equals("sync")) {
+			AsyncAppender asyncAppender = new AsyncAppender();
+			asyncAppender.setContext(context);
+			asyncAppender.setQueueSize(8192);
+			asyncAppender.setNeverBlock(true);
+			asyncAppender.addAppender(fileAppender);
+			asyncAppender.start();
+			root = asyncAppender;
+		}
+		if (appender.equals("async-sampled")) {
+			RequestLogSampler sampler = new RequestLogSampler();
+			sampler.setRate(10);
+			sampler.start();
+			context.addTurboFilter(sampler);
+		}
+
+		context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).addAppender(root);
+		logger = context.getLogger("br.com.elegacy.libraryapi.api.resource.BookController");
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		context.stop();
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void logRequest() {
+		logger.info(" obtaining details for book id: {}", 42L);
+	}
+}
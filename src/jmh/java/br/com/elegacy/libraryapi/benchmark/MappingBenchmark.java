@@ -0,0 +1,88 @@
+package br.com.elegacy.libraryapi.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.elegacy.libraryapi.api.dto.BookDTO;
+import br.com.elegacy.libraryapi.api.dto.LoanDTO;
+import br.com.elegacy.libraryapi.api.mapper.BookMapper;
+import br.com.elegacy.libraryapi.api.mapper.BookMapperImpl;
+import br.com.elegacy.libraryapi.api.mapper.LoanMapper;
+import br.com.elegacy.libraryapi.api.mapper.LoanMapperImpl;
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.entity.Loan;
+
+/**
+ * Compares the generated mappers with the reflective ModelMapper path the
+ * controllers used before, mapping a page of loans as the list endpoints do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+	@Param({ "20", "100" })
+	private int pageSize;
+
+	private List<Loan> loans;
+
+	private ModelMapper modelMapper;
+	private BookMapper bookMapper;
+	private LoanMapper loanMapper;
+
+	@Setup
+	public void setUp() {
+		modelMapper = new ModelMapper();
+		bookMapper = new BookMapperImpl();
+		loanMapper = new LoanMapperImpl(bookMapper);
+
+		loans = new ArrayList<>(pageSize);
+		for (long id = 1; id <= pageSize; id++) {
+			Book book = Book.builder().id(id).title("Title " + id).author("Author " + id).isbn("isbn-" + id).build();
+			loans.add(Loan.builder()
+					.id(id)
+					.book(book)
+					.customer("Customer " + id)
+					.customerEmail("customer" + id + "@email.com")
+					.loanDate(LocalDate.now())
+					.build());
+		}
+	}
+
+	@Benchmark
+	public List<LoanDTO> modelMapper() {
+		return loans.stream()
+				.map(loan -> {
+					BookDTO bookDTO = modelMapper.map(loan.getBook(), BookDTO.class);
+					LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+					loanDTO.setBook(bookDTO);
+					return loanDTO;
+				})
+				.toList();
+	}
+
+	@Benchmark
+	public List<LoanDTO> generatedMapper() {
+		return loans.stream()
+				.map(loanMapper::toDTO)
+				.toList();
+	}
+}
@@ -0,0 +1,139 @@
+package br.com.elegacy.libraryapi.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.elegacy.libraryapi.LibraryApiApplication;
+import br.com.elegacy.libraryapi.api.config.VirtualThreads;
+import br.com.elegacy.libraryapi.service.BookImportService;
+
+/**
+ * Drives the running application over HTTP with more concurrent clients than
+ * the Tomcat pool has threads. The sampled times give the throughput and the
+ * tail latency (p99, p99.9) of a book lookup and of a loan registration. It
+ * runs on platform threads; on a Java 21 or newer JVM, adding
+ * {@code -p virtualThreads=false,true} to {@code jmh.args} compares them with
+ * virtual threads. A loan run longer than the books imported for it starts
+ * answering 400 and should be discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class RequestLoadBenchmark {
+
+	private static final long LOANABLE_BOOKS = 300_000;
+
+	/**
+	 * Only run when asked for, since virtual threads need a newer JVM than the
+	 * Java 17 the build targets.
+	 */
+	@Param({ "false" })
+	private boolean virtualThreads;
+
+	private ConfigurableApplicationContext context;
+
+	private HttpClient client;
+
+	private String baseUrl;
+
+	private String bookUrl;
+
+	private final AtomicLong nextBook = new AtomicLong();
+
+	@Setup(Level.Trial)
+	public void startApplication() throws Exception {
+		if (virtualThreads && !VirtualThreads.isSupported()) {
+			throw new IllegalStateException("Run the virtual thread benchmark on Java 21 or newer");
+		}
+
+		context = new SpringApplicationBuilder(LibraryApiApplication.class)
+				.properties("server.port=0",
+						"application.threads.virtual.enabled=" + virtualThreads,
+						"spring.datasource.url=jdbc:h2:mem:request-load;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+						"application.outbox.delay=3600000",
+						"application.jobs.late-loans.cron=-",
+						"logging.file.name=",
+						"logging.level.root=warn")
+				.run();
+
+		client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+
+		String book = send(HttpRequest.newBuilder(URI.create(baseUrl + "/books"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(
+						"{\"title\":\"Load\",\"author\":\"Benchmark\",\"isbn\":\"load-lookup\"}"))
+				.build());
+		bookUrl = baseUrl + "/books/" + new ObjectMapper().readTree(book).get("id").asLong();
+
+		// every registered loan takes a book nobody holds, so the books are imported up front
+		String books = LongStream.range(0, LOANABLE_BOOKS)
+				.mapToObj(n -> "{\"title\":\"Book " + n + "\",\"author\":\"Author\",\"isbn\":\"load-" + n + "\"}")
+				.collect(Collectors.joining("\n"));
+		context.getBean(BookImportService.class).importBooks(new StringReader(books), BookImportService.Format.NDJSON);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopApplication() {
+		if (context != null) {
+			context.close();
+		}
+	}
+
+	@Benchmark
+	public int getBook() throws Exception {
+		return client.send(HttpRequest.newBuilder(URI.create(bookUrl)).GET().build(),
+				HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	@Benchmark
+	public int createLoan() throws Exception {
+		long book = nextBook.getAndIncrement();
+		String loan = "{\"isbn\":\"load-" + book + "\",\"customer\":\"Customer " + book
+				+ "\",\"email\":\"customer" + book + "@email.com\"}";
+
+		return client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/loans"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(loan))
+				.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	private String send(HttpRequest request) throws IOException, InterruptedException {
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() >= 300) {
+			throw new IllegalStateException(request.uri() + " answered " + response.statusCode());
+		}
+		return response.body();
+	}
+}
@@ -0,0 +1,126 @@
+package br.com.elegacy.libraryapi.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import br.com.elegacy.libraryapi.api.dto.LoanFilterDTO;
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.projection.BookView;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
+import br.com.elegacy.libraryapi.model.repository.BookRepository;
+import br.com.elegacy.libraryapi.service.BookService;
+import br.com.elegacy.libraryapi.service.LoanService;
+
+/**
+ * Measures the service calls behind the busiest endpoints against a generated
+ * {@link BenchmarkDataset} of {@code books} books, half of them with a loan.
+ * The size is a parameter, so the same run tells how each call scales:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=ServiceBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+	private static final Pageable PAGE = PageRequest.of(0, 20);
+
+	@Param({ "10000", "100000" })
+	private int books;
+
+	private ConfigurableApplicationContext context;
+
+	private BookService bookService;
+
+	private LoanService loanService;
+
+	private List<Book> catalog;
+
+	private int nextBook;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkDataset.start("service-benchmark-" + books, books);
+		bookService = context.getBean(BookService.class);
+		loanService = context.getBean(LoanService.class);
+		catalog = context.getBean(BookRepository.class).findAll();
+	}
+
+	/**
+	 * Returns the loans of the previous iteration, so every book of the catalog
+	 * can be loaned again.
+	 */
+	@Setup(Level.Iteration)
+	public void freeBooks() {
+		BenchmarkDataset.returnBenchmarkLoans(context);
+		nextBook = 0;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Page<BookView> findBooksByTitle() {
+		return bookService.find(Book.builder().title("Title 12").build(), PAGE);
+	}
+
+	@Benchmark
+	public Page<BookView> findBooksByAuthor() {
+		return bookService.find(Book.builder().author("Author 7").build(), PAGE);
+	}
+
+	@Benchmark
+	public Page<LoanView> findLoansByCustomer() {
+		return loanService.find(filter(null, "Customer 42"), PAGE);
+	}
+
+	@Benchmark
+	public Page<LoanView> findLoansByIsbnOrCustomer() {
+		return loanService.find(filter("isbn-7", "Customer 42"), PAGE);
+	}
+
+	@Benchmark
+	public Loan saveLoan() {
+		if (nextBook == catalog.size()) {
+			throw new IllegalStateException("Every book is loaned, shorten the iterations");
+		}
+
+		return loanService.save(Loan.builder()
+				.book(catalog.get(nextBook++))
+				.customer(BenchmarkDataset.BENCHMARK_CUSTOMER)
+				.customerEmail("benchmark@email.com")
+				.loanDate(LocalDate.now())
+				.build());
+	}
+
+	private static LoanFilterDTO filter(String isbn, String customer) {
+		LoanFilterDTO filter = new LoanFilterDTO();
+		filter.setIsbn(isbn);
+		filter.setCustomer(customer);
+		return filter;
+	}
+}
@@ -0,0 +1,213 @@
+package br.com.elegacy.libraryapi.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import br.com.elegacy.libraryapi.service.BookImportService;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drives the running application over HTTP from many concurrent clients with
+ * a mix of reads and writes, and compares the latencies measured after the
+ * warmup with the baseline of the environment it runs on.
+ * <p>
+ * Runs only with the {@code loadtest} Maven profile, which sets the number of
+ * clients, the warmup and run lengths and the regression threshold. The
+ * application runs with its production settings under the {@code loadtest}
+ * Spring profile, which only turns the background jobs and most logging off.
+ * <p>
+ * Latencies only compare on the same hardware, so each environment has its own
+ * baseline, {@code load-baseline-<environment>.properties}. The environment is
+ * {@code loadtest.environment}, or else the number of processors, such as
+ * {@code 1cpu}. A run fails when any call answers an unexpected status, when
+ * an endpoint of the baseline was not called at all, or when a latency in the
+ * baseline grows more than the threshold allows. Without a baseline for the
+ * environment only the answers are checked, and the latency check is skipped.
+ * The latencies of the run are written to {@code loadtest.report}, in the
+ * format of the baseline, so a new baseline can be taken from it.
+ */
+@Slf4j
+@ActiveProfiles("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ApiLoadIT {
+
+	private static final int BOOKS = 2000;
+
+	private static final String BASELINE = "/load-baseline-%s.properties";
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private BookImportService bookImportService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final int clients = Integer.getInteger("loadtest.clients", 32);
+	private final Duration warmup = DurationStyle.detectAndParse(System.getProperty("loadtest.warmup", "20s"));
+	private final Duration duration = DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "60s"));
+	private final double threshold = Double.parseDouble(System.getProperty("loadtest.threshold", "0.25"));
+	private final String environment = environment(System.getProperty("loadtest.environment"));
+
+	@BeforeEach
+	public void setUp() {
+		String catalog = IntStream.range(0, BOOKS)
+				.mapToObj(n -> "{\"title\":\"Title " + n + "\",\"author\":\"Author " + n % 100 + "\",\"isbn\":\"isbn-"
+						+ n + "\"}")
+				.collect(Collectors.joining("\n"));
+		bookImportService.importBooks(new StringReader(catalog), BookImportService.Format.NDJSON);
+	}
+
+	@Test
+	@DisplayName("Should keep the latency of every endpoint within the baseline under concurrent clients")
+	void shouldKeepLatencyWithinBaseline() throws Exception {
+		// Arrange
+		List<Long> bookIds = jdbcTemplate.queryForList("select id from book order by id", Long.class);
+		HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		String baseUrl = "http://localhost:" + port + "/api";
+
+		LoadRecorder recorder = new LoadRecorder();
+		long end = System.nanoTime() + warmup.plus(duration).toNanos();
+
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		List<Future<?>> runs = new ArrayList<>();
+
+		// Act
+		for (int client = 0; client < clients; client++) {
+			int number = client;
+			// each client loans only the seeded books whose number falls in its share
+			List<String> isbns = IntStream.range(0, BOOKS)
+					.filter(n -> n % clients == number)
+					.mapToObj(n -> "isbn-" + n)
+					.toList();
+			runs.add(executor.submit(new LoadClient(number, baseUrl, httpClient, bookIds, isbns, recorder,
+					() -> System.nanoTime() < end)));
+		}
+
+		TimeUnit.NANOSECONDS.sleep(warmup.toNanos());
+		recorder.startMeasuring();
+
+		for (Future<?> run : runs) {
+			run.get(duration.toSeconds() + 60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		// Assert
+		Properties report = recorder.report();
+		writeReport(report);
+		log.warn(" load test of {} clients over {} on {}:\n{}", clients, duration, environment, table(recorder));
+
+		assertThat(recorder.firstErrors()).as("unexpected answers").isEmpty();
+
+		Properties baseline = loadBaseline(environment);
+		assumeTrue(baseline != null, "no load baseline for the " + environment + " environment, take one from "
+				+ System.getProperty("loadtest.report", "the report"));
+		assertThat(regressions(report, baseline)).as("latencies above the " + environment + " baseline").isEmpty();
+	}
+
+	/**
+	 * Returns a line for each latency of the baseline the run exceeded by more
+	 * than the threshold, or did not measure at all.
+	 */
+	private List<String> regressions(Properties report, Properties baseline) {
+		List<String> regressions = new ArrayList<>();
+		for (String key : baseline.stringPropertyNames()) {
+			long expected = Long.parseLong(baseline.getProperty(key).trim());
+			String endpoint = key.substring(0, key.lastIndexOf('.'));
+			if (!report.containsKey(key) || "0".equals(report.getProperty(endpoint + ".count"))) {
+				regressions.add(key + " not measured, baseline " + expected + "us");
+				continue;
+			}
+
+			long measured = Long.parseLong(report.getProperty(key));
+			long allowed = Math.round(expected * (1 + threshold));
+
+			if (measured > allowed) {
+				regressions.add(key + " measured " + measured + "us, baseline " + expected + "us, allowed " + allowed
+						+ "us");
+			}
+		}
+		regressions.sort(null);
+		return regressions;
+	}
+
+	private static String environment(String environment) {
+		return environment == null || environment.isBlank()
+				? Runtime.getRuntime().availableProcessors() + "cpu"
+				: environment.trim();
+	}
+
+	/**
+	 * Returns the baseline of the environment, or null when it has none.
+	 */
+	private static Properties loadBaseline(String environment) throws IOException {
+		try (InputStream input = ApiLoadIT.class.getResourceAsStream(BASELINE.formatted(environment))) {
+			if (input == null) {
+				return null;
+			}
+			Properties baseline = new Properties();
+			baseline.load(input);
+			return baseline;
+		}
+	}
+
+	private static void writeReport(Properties report) throws IOException {
+		String location = System.getProperty("loadtest.report");
+		if (location == null) {
+			return;
+		}
+
+		Path path = Path.of(location);
+		Files.createDirectories(path.toAbsolutePath().getParent());
+		try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			writer.write("# latencies in microseconds\n");
+			for (String key : new TreeSet<>(report.stringPropertyNames())) {
+				writer.write(key + "=" + report.getProperty(key) + "\n");
+			}
+		}
+	}
+
+	private static String table(LoadRecorder recorder) {
+		StringBuilder table = new StringBuilder(String.format("%-12s %8s %10s %10s %10s%n", "endpoint", "count",
+				"p50 (us)", "p99 (us)", "p999 (us)"));
+		for (Endpoint endpoint : Endpoint.values()) {
+			Histogram histogram = recorder.histogram(endpoint);
+			table.append(String.format("%-12s %8d %10d %10d %10d%n", endpoint.key(), histogram.getTotalCount(),
+					histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+					histogram.getValueAtPercentile(99.9)));
+		}
+		return table.toString();
+	}
+}
@@ -0,0 +1,25 @@
+package br.com.elegacy.libraryapi.load;
+
+/**
+ * The calls the load test drives, named as they appear in the report and in
+ * the baseline.
+ */
+enum Endpoint {
+
+	BOOK_CREATE("book.create"),
+	BOOK_GET("book.get"),
+	BOOK_SEARCH("book.search"),
+	LOAN_CREATE("loan.create"),
+	LOAN_RETURN("loan.return"),
+	LOAN_SEARCH("loan.search");
+
+	private final String key;
+
+	Endpoint(String key) {
+		this.key = key;
+	}
+
+	String key() {
+		return key;
+	}
+}
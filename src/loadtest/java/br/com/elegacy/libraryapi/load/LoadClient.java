@@ -0,0 +1,148 @@
+package br.com.elegacy.libraryapi.load;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One simulated user of the API, calling the endpoints in a fixed mix until the
+ * run ends. Each client loans only its own share of the books, so its loans and
+ * returns never collide with another client's.
+ */
+class LoadClient implements Runnable {
+
+	private final int number;
+	private final String baseUrl;
+	private final HttpClient httpClient;
+	private final List<Long> bookIds;
+	private final Deque<String> freeIsbns;
+	private final Deque<OpenLoan> openLoans = new ArrayDeque<>();
+	private final LoadRecorder recorder;
+	private final BooleanSupplier running;
+	private final Random random;
+
+	private int createdBooks;
+
+	LoadClient(int number, String baseUrl, HttpClient httpClient, List<Long> bookIds, List<String> isbns,
+			LoadRecorder recorder, BooleanSupplier running) {
+		this.number = number;
+		this.baseUrl = baseUrl;
+		this.httpClient = httpClient;
+		this.bookIds = bookIds;
+		this.freeIsbns = new ArrayDeque<>(isbns);
+		this.recorder = recorder;
+		this.running = running;
+		this.random = new Random(number);
+	}
+
+	@Override
+	public void run() {
+		while (running.getAsBoolean()) {
+			int operation = random.nextInt(100);
+			if (operation < 10) {
+				createBook();
+			} else if (operation < 40) {
+				getBook();
+			} else if (operation < 55) {
+				searchBooks();
+			} else if (operation < 75 && !freeIsbns.isEmpty()) {
+				createLoan();
+			} else if (operation < 90 && !openLoans.isEmpty()) {
+				returnLoan();
+			} else {
+				searchLoans();
+			}
+		}
+	}
+
+	private void createBook() {
+		String isbn = "load-" + number + "-" + createdBooks++;
+		send(Endpoint.BOOK_CREATE, 201, post("/books", "{\"title\":\"Load " + isbn + "\",\"author\":\"Client "
+				+ number + "\",\"isbn\":\"" + isbn + "\"}"));
+	}
+
+	private void getBook() {
+		Long id = bookIds.get(random.nextInt(bookIds.size()));
+		send(Endpoint.BOOK_GET, 200, get("/books/" + id));
+	}
+
+	private void searchBooks() {
+		send(Endpoint.BOOK_SEARCH, 200, get("/books?size=20&title=" + encode("Title " + random.nextInt(100))));
+	}
+
+	private void createLoan() {
+		String isbn = freeIsbns.poll();
+		String body = send(Endpoint.LOAN_CREATE, 201, post("/loans", "{\"isbn\":\"" + isbn
+				+ "\",\"customer\":\"Client " + number + "\",\"email\":\"client" + number + "@email.com\"}"));
+		if (body != null) {
+			openLoans.add(new OpenLoan(Long.parseLong(body.trim()), isbn));
+		} else {
+			freeIsbns.add(isbn);
+		}
+	}
+
+	private void returnLoan() {
+		OpenLoan loan = openLoans.poll();
+		send(Endpoint.LOAN_RETURN, 200, HttpRequest.newBuilder(URI.create(baseUrl + "/loans/" + loan.id()))
+				.header("Content-Type", "application/json")
+				.method("PATCH", HttpRequest.BodyPublishers.ofString("{\"returned\":true}"))
+				.build());
+		// the returned book goes to the end of the queue, to be loaned again
+		freeIsbns.add(loan.isbn());
+	}
+
+	private void searchLoans() {
+		send(Endpoint.LOAN_SEARCH, 200, get("/loans?size=20&customer=" + encode("Client " + number)));
+	}
+
+	/**
+	 * Sends the request, records its latency and returns the body, or null when
+	 * the status was not the expected one.
+	 */
+	private String send(Endpoint endpoint, int expectedStatus, HttpRequest request) {
+		long start = System.nanoTime();
+		try {
+			HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+			recorder.record(endpoint, System.nanoTime() - start);
+
+			if (response.statusCode() != expectedStatus) {
+				recorder.error(endpoint, request.method() + " " + request.uri() + " answered "
+						+ response.statusCode() + ": " + response.body());
+				return null;
+			}
+			return response.body();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (Exception e) {
+			recorder.error(endpoint, request.method() + " " + request.uri() + " failed: " + e);
+			return null;
+		}
+	}
+
+	private HttpRequest get(String path) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+	}
+
+	private HttpRequest post(String path, String json) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json))
+				.build();
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private record OpenLoan(long id, String isbn) {
+	}
+}
@@ -0,0 +1,78 @@
+package br.com.elegacy.libraryapi.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Gathers the latency of every call in one histogram per endpoint, in
+ * microseconds. Calls made while warming up are counted as errors when they
+ * fail but left out of the histograms.
+ */
+class LoadRecorder {
+
+	private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toMicros(1);
+
+	private static final int MAX_ERRORS_KEPT = 20;
+
+	private final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+	private final AtomicLong errors = new AtomicLong();
+	private final ConcurrentLinkedQueue<String> firstErrors = new ConcurrentLinkedQueue<>();
+
+	private volatile boolean measuring;
+
+	LoadRecorder() {
+		for (Endpoint endpoint : Endpoint.values()) {
+			histograms.put(endpoint, new ConcurrentHistogram(HIGHEST_LATENCY, 3));
+		}
+	}
+
+	void startMeasuring() {
+		measuring = true;
+	}
+
+	void record(Endpoint endpoint, long nanos) {
+		if (measuring) {
+			histograms.get(endpoint).recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_LATENCY));
+		}
+	}
+
+	void error(Endpoint endpoint, String message) {
+		if (errors.incrementAndGet() <= MAX_ERRORS_KEPT) {
+			firstErrors.add(endpoint.key() + ": " + message);
+		}
+	}
+
+	Histogram histogram(Endpoint endpoint) {
+		return histograms.get(endpoint);
+	}
+
+	long errors() {
+		return errors.get();
+	}
+
+	Iterable<String> firstErrors() {
+		return firstErrors;
+	}
+
+	/**
+	 * Returns the count and the p50, p99 and p999 latencies of each endpoint, in
+	 * the same format as the baseline.
+	 */
+	Properties report() {
+		Properties report = new Properties();
+		histograms.forEach((endpoint, histogram) -> {
+			report.setProperty(endpoint.key() + ".count", Long.toString(histogram.getTotalCount()));
+			report.setProperty(endpoint.key() + ".p50", Long.toString(histogram.getValueAtPercentile(50)));
+			report.setProperty(endpoint.key() + ".p99", Long.toString(histogram.getValueAtPercentile(99)));
+			report.setProperty(endpoint.key() + ".p999", Long.toString(histogram.getValueAtPercentile(99.9)));
+		});
+		return report;
+	}
+}
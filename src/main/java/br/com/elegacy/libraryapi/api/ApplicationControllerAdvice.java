@@ -1,5 +1,7 @@
 package br.com.elegacy.libraryapi.api;
 
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -26,6 +28,18 @@ public class ApplicationControllerAdvice {
 		return new ApiErrors(ex);
 	}
 	
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	@ResponseStatus(HttpStatus.CONFLICT)
+	public ApiErrors handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+		return new ApiErrors("The resource was changed by another request, read it again and retry.");
+	}
+
+	@ExceptionHandler(TaskRejectedException.class)
+	@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+	public ApiErrors handleTaskRejectedException(TaskRejectedException ex) {
+		return new ApiErrors("Too many requests like this are running, retry later.");
+	}
+
 	@ExceptionHandler(ResponseStatusException.class)
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	public ResponseEntity<ApiErrors> handleResponseStatusException(ResponseStatusException ex) {
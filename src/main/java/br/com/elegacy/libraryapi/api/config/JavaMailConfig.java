@@ -1,11 +1,13 @@
 package br.com.elegacy.libraryapi.api.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
 @Configuration
+@EnableConfigurationProperties(MailDispatchProperties.class)
 public class JavaMailConfig {
     
 	@Bean
@@ -0,0 +1,40 @@
+package br.com.elegacy.libraryapi.api.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "application.mail.dispatch")
+public class MailDispatchProperties {
+
+	/**
+	 * Recipients per message. With 1 each customer gets a personal message,
+	 * otherwise the recipients go in Bcc so they never see each other.
+	 */
+	private int recipientsPerMessage = 1;
+
+	/**
+	 * Messages sent through one SMTP connection.
+	 */
+	private int messagesPerSession = 50;
+
+	/**
+	 * Concurrent SMTP connections.
+	 */
+	private int concurrency = 4;
+
+	/**
+	 * Maximum messages per second across all connections, 0 for no limit.
+	 */
+	private double ratePerSecond = 0;
+
+	private int maxAttempts = 3;
+
+	/**
+	 * Wait before the first retry, doubled on each following one.
+	 */
+	private Duration backoff = Duration.ofSeconds(1);
+}
@@ -0,0 +1,26 @@
+package br.com.elegacy.libraryapi.api.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Times the methods of the beans annotated with {@code @Timed}. The services
+ * are timed under {@code library.service}, tagged by class and method; the
+ * repository calls are timed by Spring Data under
+ * {@code spring.data.repository.invocations}, and the SMTP sends under
+ * {@code library.mail.smtp}, so a slow request can be told apart between the
+ * mapping, the database and the mail server.
+ */
+@Configuration
+public class MetricsConfig {
+
+	public static final String SERVICE_TIMER = "library.service";
+
+	@Bean
+	TimedAspect timedAspect(MeterRegistry meterRegistry) {
+		return new TimedAspect(meterRegistry);
+	}
+}
@@ -0,0 +1,48 @@
+package br.com.elegacy.libraryapi.api.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Keeps one of every {@code rate} info logs of the controllers and drops the
+ * rest before an event is even created. Each endpoint logs its own message, so
+ * counting by message samples every endpoint on its own and a quiet endpoint
+ * is not drowned out by a busy one. Warnings and errors are always logged.
+ * <p>
+ * Configured in {@code logback-spring.xml}.
+ */
+public class RequestLogSampler extends TurboFilter {
+
+	private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+	private String loggerPrefix = "br.com.elegacy.libraryapi.api.resource";
+
+	private int rate = 1;
+
+	@Override
+	public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+			Throwable t) {
+		if (rate <= 1 || level != Level.INFO || format == null || !logger.getName().startsWith(loggerPrefix)) {
+			return FilterReply.NEUTRAL;
+		}
+
+		long count = counters.computeIfAbsent(format, key -> new AtomicLong()).getAndIncrement();
+		return count % rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+	}
+
+	public void setLoggerPrefix(String loggerPrefix) {
+		this.loggerPrefix = loggerPrefix;
+	}
+
+	public void setRate(int rate) {
+		this.rate = rate;
+	}
+}
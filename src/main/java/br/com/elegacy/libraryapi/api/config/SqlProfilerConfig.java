@@ -0,0 +1,65 @@
+package br.com.elegacy.libraryapi.api.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import br.com.elegacy.libraryapi.api.profiling.SqlProfileEndpoint;
+import br.com.elegacy.libraryapi.api.profiling.SqlProfiler;
+import br.com.elegacy.libraryapi.api.profiling.SqlProfilerInterceptor;
+import br.com.elegacy.libraryapi.api.profiling.SqlProfilerListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * Wraps the data source in a proxy reporting every statement and row to the
+ * {@link SqlProfiler}, and profiles every request to the API by the controller
+ * method handling it. Every JDBC call, down to each row read, then goes through
+ * a reflective proxy, so it is off unless {@code application.profiling.sql.enabled}
+ * is true, for a while and on a node chosen to look into.
+ */
+@Configuration
+@ConditionalOnProperty(name = "application.profiling.sql.enabled", havingValue = "true")
+public class SqlProfilerConfig implements WebMvcConfigurer {
+
+	@Bean
+	SqlProfiler sqlProfiler() {
+		return new SqlProfiler();
+	}
+
+	@Bean
+	SqlProfileEndpoint sqlProfileEndpoint(SqlProfiler sqlProfiler,
+			@Value("${application.profiling.sql.limit:10}") int limit) {
+		return new SqlProfileEndpoint(sqlProfiler, limit);
+	}
+
+	@Bean
+	static BeanPostProcessor sqlProfilerDataSourcePostProcessor(ObjectProvider<SqlProfiler> sqlProfiler) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (!(bean instanceof DataSource dataSource)) {
+					return bean;
+				}
+
+				SqlProfilerListener listener = new SqlProfilerListener(sqlProfiler.getObject());
+				return ProxyDataSourceBuilder.create(beanName, dataSource)
+						.listener(listener)
+						.methodListener(listener)
+						.proxyResultSet()
+						.build();
+			}
+		};
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new SqlProfilerInterceptor(sqlProfiler())).addPathPatterns("/api/**");
+	}
+}
@@ -0,0 +1,53 @@
+package br.com.elegacy.libraryapi.api.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads when the running JVM has them. The project still
+ * compiles for Java 17, so the Java 21 API is reached through reflection and
+ * the virtual thread mode stays an option of the runtime, not of the build.
+ */
+public final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	public static boolean isSupported() {
+		try {
+			factory("probe-");
+			return true;
+		} catch (IllegalStateException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns a factory of virtual threads named with the prefix and a counter.
+	 */
+	public static ThreadFactory factory(String prefix) {
+		try {
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			throw new IllegalStateException("Virtual threads need Java 21 or newer, running on Java "
+					+ Runtime.version().feature(), e);
+		}
+	}
+
+	/**
+	 * Returns an executor starting a new virtual thread for every task.
+	 */
+	public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+		ThreadFactory factory = factory(prefix);
+		try {
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+					.invoke(null, factory);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Virtual thread executors need Java 21 or newer", e);
+		}
+	}
+}
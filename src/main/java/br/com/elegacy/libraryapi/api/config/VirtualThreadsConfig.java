@@ -0,0 +1,60 @@
+package br.com.elegacy.libraryapi.api.config;
+
+import java.util.concurrent.ExecutorService;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Opt-in mode handling each request on a virtual thread, so blocking JPA and
+ * SMTP calls park a cheap thread instead of holding one of the Tomcat pool. The
+ * mail dispatch workers follow the same property. Scheduled tasks keep the
+ * default scheduler, with a platform thread for each of them.
+ * Starting with it enabled on a JVM without virtual threads fails, rather than
+ * silently keeping the platform threads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "application.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadsConfig {
+
+	@Bean
+	VirtualThreadsProtocolHandlerCustomizer virtualThreadsProtocolHandlerCustomizer() {
+		log.info(" handling requests on virtual threads");
+
+		return new VirtualThreadsProtocolHandlerCustomizer(
+				VirtualThreads.newThreadPerTaskExecutor("tomcat-handler-"));
+	}
+
+	/**
+	 * Hands the executor to Tomcat, which does not stop an executor it was
+	 * given, and shuts it down with the context, once the web server has
+	 * stopped. The executor is not a bean itself, so it is never taken for the
+	 * application task executor.
+	 */
+	static class VirtualThreadsProtocolHandlerCustomizer
+			implements TomcatProtocolHandlerCustomizer<ProtocolHandler>, DisposableBean {
+
+		private final ExecutorService executor;
+
+		VirtualThreadsProtocolHandlerCustomizer(ExecutorService executor) {
+			this.executor = executor;
+		}
+
+		@Override
+		public void customize(ProtocolHandler protocolHandler) {
+			protocolHandler.setExecutor(executor);
+		}
+
+		@Override
+		public void destroy() {
+			executor.shutdown();
+		}
+	}
+}
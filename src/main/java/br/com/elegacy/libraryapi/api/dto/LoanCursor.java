@@ -0,0 +1,76 @@
+package br.com.elegacy.libraryapi.api.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.springframework.data.domain.Slice;
+
+import br.com.elegacy.libraryapi.exception.BusinessException;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Position of the last loan of a keyset page, ordered by loan date and id.
+ * Travels to the clients as an opaque url-safe token.
+ */
+@Data
+@AllArgsConstructor
+public class LoanCursor {
+
+	public static final int MAX_SIZE = 1000;
+
+	private static final String SEPARATOR = ":";
+
+	private LocalDate loanDate;
+	private Long id;
+
+	public static LoanCursor of(LoanView loan) {
+		return new LoanCursor(loan.loanDate(), loan.id());
+	}
+
+	/**
+	 * Token of the page after the informed one, or {@code null} when it is the
+	 * last page.
+	 */
+	public static String next(Slice<LoanView> slice) {
+		if (!slice.hasNext() || !slice.hasContent()) {
+			return null;
+		}
+
+		return of(slice.getContent().get(slice.getNumberOfElements() - 1)).encode();
+	}
+
+	/**
+	 * Decodes a token produced by {@link #encode()}. A blank token means the first
+	 * page and decodes to {@code null}.
+	 */
+	public static LoanCursor decode(String token) {
+		if (token == null || token.isBlank()) {
+			return null;
+		}
+
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			String[] parts = value.split(SEPARATOR);
+
+			return new LoanCursor(LocalDate.parse(parts[0]), Long.valueOf(parts[1]));
+		} catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+			throw new BusinessException("Invalid cursor.");
+		}
+	}
+
+	/**
+	 * Keeps a requested page size between 1 and {@link #MAX_SIZE}.
+	 */
+	public static int size(int size) {
+		return Math.max(1, Math.min(size, MAX_SIZE));
+	}
+
+	public String encode() {
+		String value = loanDate + SEPARATOR + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -1,5 +1,9 @@
 package br.com.elegacy.libraryapi.api.dto;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -23,6 +27,12 @@ public class LoanDTO {
 	@NotEmpty
 	private String email;
 	
+	private LocalDate loanDate;
+
+	private LoanStatus status;
+
+	private LocalDateTime returnedAt;
+
 	private BookDTO book;
 
 }
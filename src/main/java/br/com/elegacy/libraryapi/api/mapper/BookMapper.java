@@ -0,0 +1,20 @@
+package br.com.elegacy.libraryapi.api.mapper;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import br.com.elegacy.libraryapi.api.dto.BookDTO;
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.projection.BookView;
+
+@Mapper(componentModel = "spring")
+public interface BookMapper {
+
+	public BookDTO toDTO(Book book);
+
+	public BookDTO toDTO(BookView book);
+
+	@Mapping(target = "loans", ignore = true)
+	@Mapping(target = "version", ignore = true)
+	public Book toEntity(BookDTO bookDTO);
+}
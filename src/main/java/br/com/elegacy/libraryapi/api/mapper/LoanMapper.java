@@ -0,0 +1,21 @@
+package br.com.elegacy.libraryapi.api.mapper;
+
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import br.com.elegacy.libraryapi.api.dto.LoanDTO;
+import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
+
+@Mapper(componentModel = "spring", uses = BookMapper.class, injectionStrategy = InjectionStrategy.CONSTRUCTOR)
+public interface LoanMapper {
+
+	@Mapping(target = "isbn", source = "book.isbn")
+	@Mapping(target = "email", source = "customerEmail")
+	public LoanDTO toDTO(Loan loan);
+
+	@Mapping(target = "isbn", source = "book.isbn")
+	@Mapping(target = "email", source = "customerEmail")
+	public LoanDTO toDTO(LoanView loan);
+}
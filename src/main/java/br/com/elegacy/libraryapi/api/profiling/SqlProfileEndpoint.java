@@ -0,0 +1,31 @@
+package br.com.elegacy.libraryapi.api.profiling;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * {@code /actuator/sqlprofile}: the slowest and the chattiest request
+ * signatures since the start or the last reset, which a DELETE does.
+ */
+@Endpoint(id = "sqlprofile")
+public class SqlProfileEndpoint {
+
+	private final SqlProfiler sqlProfiler;
+	private final int limit;
+
+	public SqlProfileEndpoint(SqlProfiler sqlProfiler, int limit) {
+		this.sqlProfiler = sqlProfiler;
+		this.limit = limit;
+	}
+
+	@ReadOperation
+	public SqlProfileReport report() {
+		return sqlProfiler.report(limit);
+	}
+
+	@DeleteOperation
+	public void reset() {
+		sqlProfiler.reset();
+	}
+}
@@ -0,0 +1,21 @@
+package br.com.elegacy.libraryapi.api.profiling;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The request signatures that took the longest on average and the ones that
+ * sent the most statements per request, as answered by the {@code sqlprofile}
+ * Actuator endpoint.
+ */
+public record SqlProfileReport(List<RequestSignature> slowest, List<RequestSignature> chattiest) {
+
+	/**
+	 * What the requests handled by one controller method cost, on average and at
+	 * worst. The statements are the SQL sent most often, with how many times.
+	 */
+	public record RequestSignature(String signature, long requests, double averageMillis, double maxMillis,
+			double statementsPerRequest, long maxStatements, double rowsPerRequest, double sqlMillisPerRequest,
+			Map<String, Long> statements) {
+	}
+}
@@ -0,0 +1,151 @@
+package br.com.elegacy.libraryapi.api.profiling;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import br.com.elegacy.libraryapi.api.profiling.SqlProfileReport.RequestSignature;
+
+/**
+ * Counts the JDBC round trips, the rows fetched and the time spent by each
+ * request, and sums them up by request signature, which is the controller
+ * method handling it. Statements sent outside a request, such as those of the
+ * scheduled jobs, are not counted.
+ * <p>
+ * The memory it takes is bounded: there is one entry per controller method
+ * and each keeps at most {@value #MAX_STATEMENTS} distinct statements.
+ */
+public class SqlProfiler {
+
+	static final int MAX_STATEMENTS = 20;
+
+	private final ThreadLocal<RequestProfile> current = new ThreadLocal<>();
+	private final ConcurrentMap<String, SignatureProfile> signatures = new ConcurrentHashMap<>();
+
+	public void begin() {
+		current.set(new RequestProfile(System.nanoTime()));
+	}
+
+	/**
+	 * Adds the request running on this thread to its signature.
+	 */
+	public void end(String signature) {
+		RequestProfile request = current.get();
+		if (request == null) {
+			return;
+		}
+		current.remove();
+
+		signatures.computeIfAbsent(signature, key -> new SignatureProfile())
+				.add(request, System.nanoTime() - request.start);
+	}
+
+	/**
+	 * Forgets the request running on this thread without counting it, for a
+	 * request going on in another thread.
+	 */
+	public void discard() {
+		current.remove();
+	}
+
+	public void statement(String sql, long nanos) {
+		RequestProfile request = current.get();
+		if (request != null) {
+			request.statements++;
+			request.sqlNanos += nanos;
+			request.queries.merge(sql, 1L, Long::sum);
+		}
+	}
+
+	public void row() {
+		RequestProfile request = current.get();
+		if (request != null) {
+			request.rows++;
+		}
+	}
+
+	public SqlProfileReport report(int limit) {
+		List<RequestSignature> profiles = signatures.entrySet()
+				.stream()
+				.map(entry -> entry.getValue().toSignature(entry.getKey()))
+				.toList();
+
+		return new SqlProfileReport(top(profiles, RequestSignature::averageMillis, limit),
+				top(profiles, RequestSignature::statementsPerRequest, limit));
+	}
+
+	public void reset() {
+		signatures.clear();
+	}
+
+	private static List<RequestSignature> top(List<RequestSignature> profiles,
+			ToDoubleFunction<RequestSignature> cost, int limit) {
+		return profiles.stream()
+				.sorted(Comparator.comparingDouble(cost).reversed())
+				.limit(limit)
+				.toList();
+	}
+
+	private static double millis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	private static final class RequestProfile {
+
+		private final long start;
+		private final Map<String, Long> queries = new HashMap<>();
+		private long statements;
+		private long rows;
+		private long sqlNanos;
+
+		private RequestProfile(long start) {
+			this.start = start;
+		}
+	}
+
+	private static final class SignatureProfile {
+
+		private final Map<String, Long> queries = new HashMap<>();
+		private long requests;
+		private long statements;
+		private long maxStatements;
+		private long rows;
+		private long sqlNanos;
+		private long nanos;
+		private long maxNanos;
+
+		private synchronized void add(RequestProfile request, long elapsed) {
+			requests++;
+			statements += request.statements;
+			maxStatements = Math.max(maxStatements, request.statements);
+			rows += request.rows;
+			sqlNanos += request.sqlNanos;
+			nanos += elapsed;
+			maxNanos = Math.max(maxNanos, elapsed);
+
+			request.queries.forEach((sql, count) -> {
+				if (queries.containsKey(sql) || queries.size() < MAX_STATEMENTS) {
+					queries.merge(sql, count, Long::sum);
+				}
+			});
+		}
+
+		private synchronized RequestSignature toSignature(String signature) {
+			Map<String, Long> sorted = new LinkedHashMap<>();
+			queries.entrySet()
+					.stream()
+					.sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+					.forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+
+			return new RequestSignature(signature, requests, millis(nanos) / requests, millis(maxNanos),
+					statements / (double) requests, maxStatements, rows / (double) requests,
+					millis(sqlNanos) / requests, sorted);
+		}
+	}
+}
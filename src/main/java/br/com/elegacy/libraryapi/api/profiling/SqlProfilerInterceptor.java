@@ -0,0 +1,44 @@
+package br.com.elegacy.libraryapi.api.profiling;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Profiles each request handled by a controller method under the signature
+ * {@code Controller.method}. A request going on in another thread is left out,
+ * both when its handler returns and when it is dispatched again to complete.
+ */
+public class SqlProfilerInterceptor implements AsyncHandlerInterceptor {
+
+	private final SqlProfiler sqlProfiler;
+
+	public SqlProfilerInterceptor(SqlProfiler sqlProfiler) {
+		this.sqlProfiler = sqlProfiler;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (handler instanceof HandlerMethod && request.getDispatcherType() != DispatcherType.ASYNC) {
+			sqlProfiler.begin();
+		}
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		if (handler instanceof HandlerMethod handlerMethod && request.getDispatcherType() != DispatcherType.ASYNC) {
+			sqlProfiler.end(handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+		}
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		sqlProfiler.discard();
+	}
+}
@@ -0,0 +1,51 @@
+package br.com.elegacy.libraryapi.api.profiling;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Reports each statement execution, a whole batch being one round trip, and
+ * each row read from a result set to the {@link SqlProfiler}.
+ */
+public class SqlProfilerListener implements QueryExecutionListener, MethodExecutionListener {
+
+	private static final String START = "sqlProfilerStart";
+
+	private final SqlProfiler sqlProfiler;
+
+	public SqlProfilerListener(SqlProfiler sqlProfiler) {
+		this.sqlProfiler = sqlProfiler;
+	}
+
+	@Override
+	public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+		execInfo.addCustomValue(START, System.nanoTime());
+	}
+
+	@Override
+	public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+		Long start = execInfo.getCustomValue(START, Long.class);
+		long nanos = start != null ? System.nanoTime() - start : 0;
+		String sql = queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery();
+
+		sqlProfiler.statement(sql, nanos);
+	}
+
+	@Override
+	public void beforeMethod(MethodExecutionContext executionContext) {
+	}
+
+	@Override
+	public void afterMethod(MethodExecutionContext executionContext) {
+		if (executionContext.getTarget() instanceof ResultSet && "next".equals(executionContext.getMethod().getName())
+				&& Boolean.TRUE.equals(executionContext.getResult())) {
+			sqlProfiler.row();
+		}
+	}
+}
@@ -1,11 +1,16 @@
 package br.com.elegacy.libraryapi.api.resource;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,20 +18,34 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.server.ResponseStatusException;
 
 import br.com.elegacy.libraryapi.api.dto.BookDTO;
+import br.com.elegacy.libraryapi.api.dto.CursorPageDTO;
+import br.com.elegacy.libraryapi.api.dto.LoanCursor;
 import br.com.elegacy.libraryapi.api.dto.LoanDTO;
+import br.com.elegacy.libraryapi.api.mapper.BookMapper;
+import br.com.elegacy.libraryapi.api.mapper.LoanMapper;
 import br.com.elegacy.libraryapi.model.entity.Book;
-import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.projection.BookView;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
+import br.com.elegacy.libraryapi.service.BookImportReport;
+import br.com.elegacy.libraryapi.service.BookImportService;
 import br.com.elegacy.libraryapi.service.BookService;
+import br.com.elegacy.libraryapi.service.ExportService;
 import br.com.elegacy.libraryapi.service.LoanService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -38,9 +57,15 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class BookController {
 
+	private static final String NDJSON = "application/x-ndjson";
+
 	private final BookService bookService;
+	private final BookImportService bookImportService;
 	private final LoanService loanService;
-	private final ModelMapper modelMapper;
+	private final ExportService exportService;
+	private final Exports exports;
+	private final BookMapper bookMapper;
+	private final LoanMapper loanMapper;
 
 	@PostMapping
 	@ResponseStatus(HttpStatus.CREATED)
@@ -48,22 +73,60 @@ public class BookController {
 	public BookDTO create(@Valid @RequestBody BookDTO bookDTO) {
 		log.info(" creating a book for isbn: {}", bookDTO.getIsbn());
 		
-		Book book = modelMapper.map(bookDTO, Book.class);
+		Book book = bookMapper.toEntity(bookDTO);
 
 		book = bookService.save(book);
 
-		return modelMapper.map(book, BookDTO.class);
+		return bookMapper.toDTO(book);
+	}
+
+	@PostMapping(value = "bulk", consumes = NDJSON)
+	@Operation(description = "Imports books from a body with one JSON book per line; rejected rows are reported without aborting the import")
+	public BookImportReport importNdjson(HttpServletRequest request) throws IOException {
+		return importBooks(request, BookImportService.Format.NDJSON);
+	}
+
+	@PostMapping(value = "bulk", consumes = "text/csv")
+	@Operation(description = "Imports books from a CSV body with a title, author and isbn header; rejected rows are reported without aborting the import")
+	public BookImportReport importCsv(HttpServletRequest request) throws IOException {
+		return importBooks(request, BookImportService.Format.CSV);
+	}
+
+	private BookImportReport importBooks(HttpServletRequest request, BookImportService.Format format)
+			throws IOException {
+		log.info(" importing books from {}", format);
+
+		Charset charset = request.getCharacterEncoding() != null ? Charset.forName(request.getCharacterEncoding())
+				: StandardCharsets.UTF_8;
+
+		return bookImportService.importBooks(new InputStreamReader(request.getInputStream(), charset), format);
+	}
+
+	@GetMapping("export")
+	@Operation(description = "Streams the whole catalog as NDJSON, or as CSV with format=CSV; gzip compressed when the client accepts it")
+	public WebAsyncTask<Void> export(
+			@RequestParam(defaultValue = "NDJSON") ExportService.Format format,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+			HttpServletResponse response) {
+		log.info(" exporting books as {}", format);
+
+		return exports.of("books", format, acceptEncoding, response, out -> exportService.exportBooks(out, format));
 	}
 
 	@GetMapping("{id}")
 	@Operation(description = "Obtains a book details by id")
-	public BookDTO get(@PathVariable Long id) {
+	public BookDTO get(@PathVariable Long id, WebRequest request) {
 		log.info(" obtaining details for book id: {}", id);
 		
-		return bookService
+		Book book = bookService
 				.getById(id)
-				.map(book -> modelMapper.map(book, BookDTO.class))
 				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+		if (request.checkNotModified(ETags.of(book))) {
+			return null;
+		}
+
+		return bookMapper.toDTO(book);
 	}
 
 	@DeleteMapping("{id}")
@@ -95,40 +158,63 @@ public class BookController {
 
 					book = bookService.update(book);
 
-					return modelMapper.map(book, BookDTO.class);
+					return bookMapper.toDTO(book);
 				})
 				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 	}
 
 	@GetMapping
 	@Operation(description = "Find books by params")
-	public Page<BookDTO> find(BookDTO bookDTO, Pageable pageRequest) {
-		Book filter = modelMapper.map(bookDTO, Book.class);
-		Page<Book> result = bookService.find(filter, pageRequest);
+	public Page<BookDTO> find(BookDTO bookDTO, Pageable pageRequest, WebRequest request) {
+		Book filter = bookMapper.toEntity(bookDTO);
+		Page<BookView> result = bookService.find(filter, pageRequest);
+
+		if (request.checkNotModified(ETags.ofBooks(result.getContent(), result.getTotalElements()))) {
+			return null;
+		}
 
 		List<BookDTO> books = result.getContent()
 				.stream()
-				.map(entity -> modelMapper.map(entity, BookDTO.class))
+				.map(bookMapper::toDTO)
 				.toList();
 
 		return new PageImpl<>(books, pageRequest, result.getTotalElements());
 	}
 
 	@GetMapping("{id}/loans")
-	public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable) {
+	public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable, WebRequest request) {
 		Book book = bookService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-		Page<Loan> result = loanService.getLoansByBook(book, pageable);
+		Page<LoanView> result = loanService.getLoansByBook(book, pageable);
+
+		if (request.checkNotModified(ETags.ofLoans(result.getContent(), result.getTotalElements()))) {
+			return null;
+		}
 
 		List<LoanDTO> list = result.getContent()
 				.stream()
-				.map(loan -> {
-					Book loanBook = loan.getBook();
-					BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-					LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-					loanDTO.setBook(bookDTO);
-					return loanDTO;
-				}).toList();
+				.map(loanMapper::toDTO)
+				.toList();
 
 		return new PageImpl<>(list, pageable, result.getTotalElements());
 	}
+
+	@GetMapping(value = "{id}/loans", params = "after")
+	@Operation(description = "Scrolls the loans of a book; send an empty 'after' for the first page and the returned 'next' for the following ones")
+	public CursorPageDTO<LoanDTO> scrollLoansByBook(@PathVariable Long id, @RequestParam String after,
+			@RequestParam(defaultValue = "20") int size, @RequestParam(defaultValue = "false") boolean count,
+			WebRequest request) {
+		Book book = bookService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		Slice<LoanView> result = loanService.scrollLoansByBook(book, LoanCursor.decode(after), LoanCursor.size(size));
+		Long totalElements = count ? loanService.countLoansByBook(book) : null;
+
+		if (request.checkNotModified(ETags.ofLoans(result.getContent(), result.hasNext(), totalElements))) {
+			return null;
+		}
+
+		return CursorPageDTO.<LoanDTO>builder()
+				.content(result.getContent().stream().map(loanMapper::toDTO).toList())
+				.next(LoanCursor.next(result))
+				.totalElements(totalElements)
+				.build();
+	}
 }
@@ -0,0 +1,49 @@
+package br.com.elegacy.libraryapi.api.resource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.util.DigestUtils;
+
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.projection.BookView;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
+
+/**
+ * Strong entity tags built from the entity versions, so a conditional request
+ * is answered with 304 before anything is mapped or serialized.
+ */
+final class ETags {
+
+	private ETags() {
+	}
+
+	static String of(Book book) {
+		return quote(book.getId() + "-" + book.getVersion());
+	}
+
+	static String ofBooks(List<BookView> books, Object... extras) {
+		return of(books, book -> book.id() + ":" + book.version(), extras);
+	}
+
+	/**
+	 * A loan is listed with its book, so the tag also changes when the book does.
+	 */
+	static String ofLoans(List<LoanView> loans, Object... extras) {
+		return of(loans, loan -> loan.id() + ":" + loan.version() + ":" + loan.book().version(), extras);
+	}
+
+	private static <T> String of(List<T> entries, Function<T, String> tag, Object... extras) {
+		StringBuilder content = new StringBuilder(entries.stream().map(tag).collect(Collectors.joining(",")));
+		for (Object extra : extras) {
+			content.append('|').append(extra);
+		}
+		return quote(DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static String quote(String tag) {
+		return "\"" + tag + "\"";
+	}
+}
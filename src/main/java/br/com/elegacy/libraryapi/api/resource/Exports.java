@@ -0,0 +1,106 @@
+package br.com.elegacy.libraryapi.api.resource;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import br.com.elegacy.libraryapi.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Streams exports as they are written, compressed with gzip when the client
+ * accepts it. The body is written after the handler returns, on a small pool
+ * of its own with no queue, so a long export never holds a thread of the MVC
+ * async executor and an export asked for while the pool is busy is refused
+ * right away. Each export has its own timeout, leaving the one of the other
+ * async requests as it is.
+ * <p>
+ * The pool is not a bean, so it is never taken for the application task
+ * executor, and it is shut down with the context.
+ */
+@Component
+class Exports implements DisposableBean {
+
+	private static final String TEXT_CSV = "text/csv";
+
+	private static final Pattern REFUSED = Pattern.compile(";\\s*q=0(\\.0*)?$");
+
+	private static final int GZIP_BUFFER_SIZE = 8 * 1024;
+
+	private final ThreadPoolTaskExecutor executor;
+	private final long timeout;
+
+	Exports(@Value("${application.exports.concurrency:2}") int concurrency,
+			@Value("${application.exports.timeout:1h}") Duration timeout) {
+		this.executor = new ThreadPoolTaskExecutor();
+		this.executor.setCorePoolSize(concurrency);
+		this.executor.setMaxPoolSize(concurrency);
+		this.executor.setQueueCapacity(0);
+		this.executor.setThreadNamePrefix("export-");
+		this.executor.initialize();
+		this.timeout = timeout.toMillis();
+	}
+
+	/**
+	 * Returns the task writing the export to the response. The headers are only
+	 * set once the task runs, so a refused export answers a plain error.
+	 */
+	WebAsyncTask<Void> of(String name, ExportService.Format format, String acceptEncoding,
+			HttpServletResponse response, Consumer<OutputStream> export) {
+		boolean gzip = acceptsGzip(acceptEncoding);
+		boolean csv = format == ExportService.Format.CSV;
+
+		return new WebAsyncTask<>(timeout, executor, () -> {
+			response.setContentType(csv ? TEXT_CSV : MediaType.APPLICATION_NDJSON_VALUE);
+			response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+					.filename(name + (csv ? ".csv" : ".ndjson"))
+					.build()
+					.toString());
+			response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+			OutputStream out = response.getOutputStream();
+			if (gzip) {
+				response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+				GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+				export.accept(compressed);
+				compressed.finish();
+			} else {
+				export.accept(out);
+			}
+			out.flush();
+
+			return null;
+		});
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdown();
+	}
+
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+
+		for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+			String value = coding.trim();
+			if ((value.equals("gzip") || value.startsWith("gzip;")) && !REFUSED.matcher(value).find()) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
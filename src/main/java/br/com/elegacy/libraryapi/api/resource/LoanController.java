@@ -1,31 +1,44 @@
 package br.com.elegacy.libraryapi.api.resource;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.server.ResponseStatusException;
 
-import br.com.elegacy.libraryapi.api.dto.BookDTO;
+import br.com.elegacy.libraryapi.api.dto.CursorPageDTO;
+import br.com.elegacy.libraryapi.api.dto.LoanCursor;
 import br.com.elegacy.libraryapi.api.dto.LoanDTO;
 import br.com.elegacy.libraryapi.api.dto.LoanFilterDTO;
 import br.com.elegacy.libraryapi.api.dto.ReturnedLoanDTO;
+import br.com.elegacy.libraryapi.api.mapper.LoanMapper;
 import br.com.elegacy.libraryapi.model.entity.Book;
 import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
 import br.com.elegacy.libraryapi.service.BookService;
+import br.com.elegacy.libraryapi.service.ExportService;
 import br.com.elegacy.libraryapi.service.LoanService;
+import br.com.elegacy.libraryapi.service.OverdueLoans;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 
 @RestController
@@ -35,7 +48,9 @@ public class LoanController {
 
 	private final LoanService loanService;
 	private final BookService bookService;
-	private final ModelMapper modelMapper;
+	private final ExportService exportService;
+	private final Exports exports;
+	private final LoanMapper loanMapper;
 
 	@PostMapping
 	@ResponseStatus(HttpStatus.CREATED)
@@ -47,6 +62,7 @@ public class LoanController {
 		Loan entity = Loan.builder()
 				.book(book)
 				.customer(loanDTO.getCustomer())
+				.customerEmail(loanDTO.getEmail())
 				.loanDate(LocalDate.now())
 				.build();
 
@@ -60,26 +76,66 @@ public class LoanController {
 		Loan loan = loanService.getById(id).orElseThrow(
 				() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Loan not found by informed id."));
 
-		loan.setReturned(returnedLoanDTO.getReturned());
+		if (Boolean.TRUE.equals(returnedLoanDTO.getReturned())) {
+			loan.setStatus(LoanStatus.RETURNED);
+			loan.setReturnedAt(LocalDateTime.now());
+		} else {
+			loan.setStatus(LoanStatus.OPEN);
+			loan.setReturnedAt(null);
+		}
 		loanService.update(loan);
 	}
 
 	@GetMapping
-	public Page<LoanDTO> find(LoanFilterDTO loanFilterDTO, Pageable pageable) {
-		Page<Loan> result = loanService.find(loanFilterDTO, pageable);
+	public Page<LoanDTO> find(LoanFilterDTO loanFilterDTO, Pageable pageable, WebRequest request) {
+		Page<LoanView> result = loanService.find(loanFilterDTO, pageable);
+
+		if (request.checkNotModified(ETags.ofLoans(result.getContent(), result.getTotalElements()))) {
+			return null;
+		}
 
 		List<LoanDTO> loans = result.getContent()
 				.stream()
-				.map(entity -> {
-					Book book = entity.getBook();
-					BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-					LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-					loanDTO.setBook(bookDTO);
-
-					return loanDTO;
-				})
+				.map(loanMapper::toDTO)
 				.toList();
 
 		return new PageImpl<>(loans, pageable, result.getTotalElements());
 	}
+
+	/**
+	 * Keyset pagination over the same filter: sends an empty {@code after} for the
+	 * first page and the returned {@code next} token for the following ones. The
+	 * total is only counted when {@code count} is requested. Like the other
+	 * listings it answers 304 when the client already holds the same loans.
+	 */
+	@GetMapping(params = "after")
+	public CursorPageDTO<LoanDTO> scroll(LoanFilterDTO loanFilterDTO, @RequestParam String after,
+			@RequestParam(defaultValue = "20") int size, @RequestParam(defaultValue = "false") boolean count,
+			WebRequest request) {
+		Slice<LoanView> result = loanService.scroll(loanFilterDTO, LoanCursor.decode(after), LoanCursor.size(size));
+		Long totalElements = count ? loanService.count(loanFilterDTO) : null;
+
+		if (request.checkNotModified(ETags.ofLoans(result.getContent(), result.hasNext(), totalElements))) {
+			return null;
+		}
+
+		return CursorPageDTO.<LoanDTO>builder()
+				.content(result.getContent().stream().map(loanMapper::toDTO).toList())
+				.next(LoanCursor.next(result))
+				.totalElements(totalElements)
+				.build();
+	}
+
+	@GetMapping("overdue")
+	public OverdueLoans overdue() {
+		return loanService.getOverdueLoans(LocalDate.now());
+	}
+
+	@GetMapping("export")
+	public WebAsyncTask<Void> export(
+			@RequestParam(defaultValue = "NDJSON") ExportService.Format format,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+			HttpServletResponse response) {
+		return exports.of("loans", format, acceptEncoding, response, out -> exportService.exportLoans(out, format));
+	}
 }
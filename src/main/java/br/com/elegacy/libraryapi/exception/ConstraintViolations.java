@@ -0,0 +1,20 @@
+package br.com.elegacy.libraryapi.exception;
+
+import java.util.Locale;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+public final class ConstraintViolations {
+
+	private ConstraintViolations() {
+	}
+
+	/**
+	 * Tells whether the violation was raised by the informed constraint, as the
+	 * database reports it by name in the error message.
+	 */
+	public static boolean isViolationOf(DataIntegrityViolationException ex, String constraint) {
+		String message = ex.getMostSpecificCause().getMessage();
+		return message != null && message.toUpperCase(Locale.ROOT).contains(constraint.toUpperCase(Locale.ROOT));
+	}
+}
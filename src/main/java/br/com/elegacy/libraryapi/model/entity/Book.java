@@ -1,5 +1,6 @@
 package br.com.elegacy.libraryapi.model.entity;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import jakarta.persistence.Column;
@@ -9,7 +10,12 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -20,12 +26,15 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table
+@Table(uniqueConstraints = @UniqueConstraint(name = Book.ISBN_CONSTRAINT, columnNames = "isbn"))
 public class Book {
 
+	public static final String ISBN_CONSTRAINT = "uk_book_isbn";
+
 	@Id
 	@Column
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+	@SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
 	private Long id;
 	
 	@Column
@@ -37,6 +46,23 @@ public class Book {
 	@Column
 	private String isbn;
 	
+	@Version
+	@Column
+	private Long version;
+
+	/**
+	 * When the book was last written, read by the search index refresh of every
+	 * node.
+	 */
+	@Column
+	private LocalDateTime updatedAt;
+
 	@OneToMany(mappedBy = "book", fetch = FetchType.LAZY)
 	private List<Loan> loans;
+
+	@PrePersist
+	@PreUpdate
+	void updateUpdatedAt() {
+		this.updatedAt = LocalDateTime.now();
+	}
 }
@@ -0,0 +1,66 @@
+package br.com.elegacy.libraryapi.model.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The lease of one shard of a scheduled job. Only the node named as owner,
+ * while the lease lasts, works on the shard; the checkpoint records the last
+ * item it finished in the run of {@code runDate}, so another node can resume the
+ * run from there.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "job_lease")
+@IdClass(JobLease.Key.class)
+public class JobLease {
+
+	@Id
+	@Column
+	private String job;
+
+	@Id
+	@Column
+	private int shard;
+
+	@Column
+	private String owner;
+
+	@Column
+	private LocalDateTime leasedUntil;
+
+	@Column
+	private LocalDate runDate;
+
+	@Column
+	private Long checkpoint;
+
+	@Column
+	private LocalDateTime completedAt;
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Key implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private String job;
+
+		private int shard;
+	}
+}
@@ -1,14 +1,23 @@
 package br.com.elegacy.libraryapi.model.entity;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,8 +28,11 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = Loan.OPEN_BOOK_CONSTRAINT, columnNames = "open_book_id"))
 public class Loan {
 
+	public static final String OPEN_BOOK_CONSTRAINT = "uk_loan_open_book";
+
 	@Id
 	@Column
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -33,12 +45,42 @@ public class Loan {
 	private String customer;
 	
 	@JoinColumn(name = "book_id")
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	private Book book;
 	
 	@Column
 	private LocalDate loanDate;
 	
+	@Builder.Default
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private LoanStatus status = LoanStatus.OPEN;
+
+	@Column
+	private LocalDateTime returnedAt;
+
+	@Version
 	@Column
-	private Boolean returned;
+	private Long version;
+
+	/**
+	 * Id of the book while the loan is open, null once it is returned. Being
+	 * unique, it lets the database itself refuse a second open loan of a book.
+	 */
+	@Column(name = "open_book_id")
+	private Long openBookId;
+
+	/**
+	 * When the loan was last written, read by the overdue loan index refresh of
+	 * every node.
+	 */
+	@Column
+	private LocalDateTime updatedAt;
+
+	@PrePersist
+	@PreUpdate
+	void updateDerivedColumns() {
+		this.openBookId = status == LoanStatus.RETURNED || book == null ? null : book.getId();
+		this.updatedAt = LocalDateTime.now();
+	}
 }
@@ -0,0 +1,6 @@
+package br.com.elegacy.libraryapi.model.entity;
+
+public enum LoanStatus {
+
+	OPEN, RETURNED
+}
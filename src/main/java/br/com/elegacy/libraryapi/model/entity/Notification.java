@@ -0,0 +1,60 @@
+package br.com.elegacy.libraryapi.model.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A mail waiting in the outbox. It is written in the same transaction as the
+ * change it notifies and sent later by a background worker.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "notification_outbox")
+public class Notification {
+
+	@Id
+	@Column
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column
+	private String recipient;
+
+	@Column
+	private String subject;
+
+	@Column(length = 1000)
+	private String message;
+
+	@Column
+	private LocalDateTime createdAt;
+
+	@Column
+	private LocalDateTime sentAt;
+
+	@Column
+	private int attempts;
+
+	/**
+	 * Dispatch that holds the notification until {@link #claimedUntil}; no
+	 * other dispatch sends it meanwhile.
+	 */
+	@Column
+	private String claimedBy;
+
+	@Column
+	private LocalDateTime claimedUntil;
+}
@@ -0,0 +1,9 @@
+package br.com.elegacy.libraryapi.model.projection;
+
+/**
+ * The columns of a book the listings show, read straight into a record so the
+ * book is never loaded as a managed entity. The version only feeds the entity
+ * tags.
+ */
+public record BookView(Long id, String title, String author, String isbn, Long version) {
+}
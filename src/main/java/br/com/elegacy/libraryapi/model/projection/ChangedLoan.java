@@ -0,0 +1,12 @@
+package br.com.elegacy.libraryapi.model.projection;
+
+import java.time.LocalDate;
+
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
+
+/**
+ * The columns of a changed loan the overdue loan index needs to keep it, while
+ * it is open, or drop it.
+ */
+public record ChangedLoan(Long id, Long version, LocalDate loanDate, LoanStatus status) {
+}
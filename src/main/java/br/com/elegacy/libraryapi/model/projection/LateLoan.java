@@ -0,0 +1,7 @@
+package br.com.elegacy.libraryapi.model.projection;
+
+/**
+ * The only columns of an overdue loan the late loans notification needs.
+ */
+public record LateLoan(Long id, String customerEmail) {
+}
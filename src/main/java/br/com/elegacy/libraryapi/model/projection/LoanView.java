@@ -0,0 +1,30 @@
+package br.com.elegacy.libraryapi.model.projection;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
+
+/**
+ * The columns of a loan and its book the loan listings and exports show, read
+ * straight into records so neither is loaded as a managed entity. The versions
+ * only feed the entity tags.
+ */
+public record LoanView(Long id, String customer, String customerEmail, LocalDate loanDate, LoanStatus status,
+		LocalDateTime returnedAt, Long version, BookView book) {
+
+	/**
+	 * Select list of a query reading a loan {@code l} joined to its book
+	 * {@code b} into this record, through the flat constructor below.
+	 */
+	public static final String SELECT = "select new br.com.elegacy.libraryapi.model.projection.LoanView("
+			+ "l.id, l.customer, l.customerEmail, l.loanDate, l.status, l.returnedAt, l.version,"
+			+ " b.id, b.title, b.author, b.isbn, b.version)";
+
+	public LoanView(Long id, String customer, String customerEmail, LocalDate loanDate, LoanStatus status,
+			LocalDateTime returnedAt, Long version, Long bookId, String title, String author, String isbn,
+			Long bookVersion) {
+		this(id, customer, customerEmail, loanDate, status, returnedAt, version,
+				new BookView(bookId, title, author, isbn, bookVersion));
+	}
+}
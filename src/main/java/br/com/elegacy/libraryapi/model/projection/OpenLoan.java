@@ -0,0 +1,9 @@
+package br.com.elegacy.libraryapi.model.projection;
+
+import java.time.LocalDate;
+
+/**
+ * The only columns of an open loan the overdue loan index needs.
+ */
+public record OpenLoan(Long id, Long version, LocalDate loanDate) {
+}
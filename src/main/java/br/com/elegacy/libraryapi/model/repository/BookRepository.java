@@ -1,14 +1,44 @@
 package br.com.elegacy.libraryapi.model.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.projection.BookView;
+import jakarta.persistence.QueryHint;
 
 public interface BookRepository extends JpaRepository<Book, Long> {
 
-	public boolean existsByIsbn(String isbn);
-
 	public Optional<Book> findByIsbn(String isbn);
+
+	@Query(value = "select b.isbn from Book b where b.isbn in :isbns")
+	public Set<String> findIsbnsIn(@Param("isbns") Collection<String> isbns);
+
+	@Query(value = "select new br.com.elegacy.libraryapi.model.projection.BookView(b.id, b.title, b.author, b.isbn, "
+			+ " b.version) from Book b where b.id in :ids order by b.id")
+	public List<BookView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+	@Query(value = "select new br.com.elegacy.libraryapi.model.projection.BookView(b.id, b.title, b.author, b.isbn, "
+			+ " b.version) from Book b where b.updatedAt > :since")
+	public List<BookView> findViewsByUpdatedAtAfter(@Param("since") LocalDateTime since);
+
+	/**
+	 * Reads the whole catalog through a database cursor; must be consumed and
+	 * closed inside a transaction.
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	@Query(value = "select new br.com.elegacy.libraryapi.model.projection.BookView(b.id, b.title, b.author, b.isbn, "
+			+ " b.version) from Book b order by b.id")
+	public Stream<BookView> streamViews();
 }
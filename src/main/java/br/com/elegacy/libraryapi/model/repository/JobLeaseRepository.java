@@ -0,0 +1,53 @@
+package br.com.elegacy.libraryapi.model.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import br.com.elegacy.libraryapi.model.entity.JobLease;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, JobLease.Key> {
+
+	/**
+	 * Inserts the free lease of a shard; fails on the primary key when another
+	 * node created it first.
+	 */
+	@Modifying
+	@Query(value = "insert into job_lease (job, shard) values (:job, :shard)", nativeQuery = true)
+	public int create(@Param("job") String job, @Param("shard") int shard);
+
+	/**
+	 * Takes the lease when it is free, expired or already held by the owner, and
+	 * the run of the date is not completed yet. Returns 1 when the lease is taken.
+	 */
+	@Modifying(clearAutomatically = true)
+	@Query(value = "update JobLease j set j.owner = :owner, j.leasedUntil = :leasedUntil "
+			+ " where j.job = :job and j.shard = :shard "
+			+ " and (j.owner is null or j.owner = :owner or j.leasedUntil < :now) "
+			+ " and (j.completedAt is null or j.runDate is null or j.runDate < :runDate)")
+	public int acquire(@Param("job") String job, @Param("shard") int shard, @Param("runDate") LocalDate runDate,
+			@Param("owner") String owner, @Param("now") LocalDateTime now,
+			@Param("leasedUntil") LocalDateTime leasedUntil);
+
+	@Modifying
+	@Query(value = "update JobLease j set j.checkpoint = :checkpoint, j.leasedUntil = :leasedUntil "
+			+ " where j.job = :job and j.shard = :shard and j.owner = :owner")
+	public int checkpoint(@Param("job") String job, @Param("shard") int shard, @Param("owner") String owner,
+			@Param("checkpoint") Long checkpoint, @Param("leasedUntil") LocalDateTime leasedUntil);
+
+	@Modifying
+	@Query(value = "update JobLease j set j.completedAt = :completedAt, j.owner = null, j.leasedUntil = null "
+			+ " where j.job = :job and j.shard = :shard and j.owner = :owner")
+	public int complete(@Param("job") String job, @Param("shard") int shard, @Param("owner") String owner,
+			@Param("completedAt") LocalDateTime completedAt);
+
+	@Modifying
+	@Query(value = "update JobLease j set j.owner = null, j.leasedUntil = null "
+			+ " where j.job = :job and j.shard = :shard and j.owner = :owner")
+	public int release(@Param("job") String job, @Param("shard") int shard, @Param("owner") String owner);
+
+}
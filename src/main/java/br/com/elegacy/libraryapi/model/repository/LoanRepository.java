@@ -1,30 +1,75 @@
 package br.com.elegacy.libraryapi.model.repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import br.com.elegacy.libraryapi.model.entity.Book;
 import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
+import br.com.elegacy.libraryapi.model.projection.ChangedLoan;
+import br.com.elegacy.libraryapi.model.projection.LateLoan;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
+import br.com.elegacy.libraryapi.model.projection.OpenLoan;
+import jakarta.persistence.QueryHint;
+
+public interface LoanRepository extends JpaRepository<Loan, Long>, LoanSearchRepository {
+
+	@Query(value = LoanView.SELECT + " from Loan l join l.book b where l.book = :book",
+			countQuery = "select count(l.id) from Loan l where l.book = :book")
+	public Page<LoanView> findByBook(@Param("book") Book book, Pageable pageable);
+
+	public long countByBook(Book book);
+
+	/**
+	 * Status of the loan as stored, without flushing first the changes made to
+	 * a managed copy of it.
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+	@Query(value = "select l.status from Loan l where l.id = :id")
+	public Optional<LoanStatus> findStatusById(@Param("id") Long id);
+
+	@Query(value = LoanView.SELECT + " from Loan l join l.book b where l.book = :book order by l.loanDate, l.id")
+	public List<LoanView> scrollByBook(@Param("book") Book book, Pageable pageable);
 
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+	@Query(value = LoanView.SELECT + " from Loan l join l.book b where l.book = :book "
+			+ " and l.loanDate >= :loanDate and (l.loanDate > :loanDate or l.id > :id) order by l.loanDate, l.id")
+	public List<LoanView> scrollByBookAfter(@Param("book") Book book, @Param("loanDate") LocalDate loanDate,
+			@Param("id") Long id, Pageable pageable);
 
-	@Query(value = "select case when (count(l.id) > 0) then true else false end "
-			+ " from Loan l where l.book = :book and (l.returned is null or not(l.returned))")
-	public boolean existsByBookAndNotReturned(@Param("book") Book book);
+	@Query(value = "select new br.com.elegacy.libraryapi.model.projection.LateLoan(l.id, l.customerEmail) "
+			+ " from Loan l where l.status = br.com.elegacy.libraryapi.model.entity.LoanStatus.OPEN "
+			+ " and l.loanDate <= :loanDate and mod(l.id, :shards) = :shard "
+			+ " and l.id > :afterId order by l.id")
+	public List<LateLoan> findLateLoansAfter(@Param("loanDate") LocalDate loanDate, @Param("shard") int shard,
+			@Param("shards") int shards, @Param("afterId") Long afterId, Pageable pageable);
 
-	@Query(value = "select l from Loan as l join l.book as b where b.isbn = :isbn or l.customer = :customer")
-	public Page<Loan> findByBookIsbnOrCustomer(@Param("isbn") String isbn, @Param("customer") String customer,
-			Pageable pageable);
+	@Query(value = "select new br.com.elegacy.libraryapi.model.projection.OpenLoan(l.id, l.version, l.loanDate) "
+			+ " from Loan l where l.status = br.com.elegacy.libraryapi.model.entity.LoanStatus.OPEN "
+			+ " and l.id > :afterId order by l.id")
+	public List<OpenLoan> findOpenLoansAfter(@Param("afterId") Long afterId, Pageable pageable);
 
-	public Page<Loan> findByBook(Book book, Pageable pageable);
+	@Query(value = "select new br.com.elegacy.libraryapi.model.projection.ChangedLoan(l.id, l.version, l.loanDate, "
+			+ " l.status) from Loan l where l.updatedAt > :since")
+	public List<ChangedLoan> findChangedLoansByUpdatedAtAfter(@Param("since") LocalDateTime since);
 
-	@Query(value = "select l from Loan l where l.loanDate <= :threDaysAgo and (l.returned is null or not(l.returned))")
-	public List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threDaysAgo") LocalDate threDaysAgo);
+	/**
+	 * Reads every loan with its book through a database cursor; must be
+	 * consumed and closed inside a transaction.
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	@Query(value = LoanView.SELECT + " from Loan l join l.book b order by l.id")
+	public Stream<LoanView> streamViews();
 
 }
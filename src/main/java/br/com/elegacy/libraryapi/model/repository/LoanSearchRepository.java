@@ -0,0 +1,26 @@
+package br.com.elegacy.libraryapi.model.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import br.com.elegacy.libraryapi.model.projection.LoanView;
+
+/**
+ * Loan search by book isbn or customer. A blank filter is left out of the
+ * query, and passing none of them matches no loan, answered without querying.
+ * The loans are read into {@link LoanView} records, never as managed entities.
+ */
+public interface LoanSearchRepository {
+
+	public Page<LoanView> findByBookIsbnOrCustomer(String isbn, String customer, Pageable pageable);
+
+	public long countByBookIsbnOrCustomer(String isbn, String customer);
+
+	public List<LoanView> scrollByBookIsbnOrCustomer(String isbn, String customer, Pageable pageable);
+
+	public List<LoanView> scrollByBookIsbnOrCustomerAfter(String isbn, String customer, LocalDate loanDate, Long id,
+			Pageable pageable);
+}
@@ -0,0 +1,145 @@
+package br.com.elegacy.libraryapi.model.repository;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.util.StringUtils;
+
+import br.com.elegacy.libraryapi.model.projection.LoanView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Builds the loan search with only the filters supplied, each one answered by
+ * an index: the customer by the loan customer index without touching the book
+ * table, the isbn by the book isbn index and then the loan book index. When
+ * both are given, the loans matching each filter are found apart and united,
+ * since an OR across the two tables would read the whole loan table. With
+ * neither there is nothing to look up, so no query is run at all.
+ */
+public class LoanSearchRepositoryImpl implements LoanSearchRepository {
+
+	private static final String ALIAS = "l";
+
+	private static final String BY_CUSTOMER = "select c.id from Loan c where c.customer = :customer";
+
+	private static final String BY_ISBN = "select i.id from Loan i where i.book.id = "
+			+ "(select b.id from Book b where b.isbn = :isbn)";
+
+	private static final String FROM = " from Loan l join l.book b";
+
+	private static final String SEEK = "l.loanDate >= :loanDate and (l.loanDate > :loanDate or l.id > :id)";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public Page<LoanView> findByBookIsbnOrCustomer(String isbn, String customer, Pageable pageable) {
+		Filter filter = new Filter(isbn, customer);
+		if (filter.matchesNothing()) {
+			return Page.empty(pageable);
+		}
+
+		TypedQuery<LoanView> query = filter.query(QueryUtils.applySorting(
+				LoanView.SELECT + FROM + filter.where(), pageable.getSort(), ALIAS), LoanView.class);
+		if (pageable.isPaged()) {
+			query.setFirstResult((int) pageable.getOffset());
+			query.setMaxResults(pageable.getPageSize());
+		}
+
+		return PageableExecutionUtils.getPage(query.getResultList(), pageable,
+				() -> countByBookIsbnOrCustomer(isbn, customer));
+	}
+
+	@Override
+	public long countByBookIsbnOrCustomer(String isbn, String customer) {
+		Filter filter = new Filter(isbn, customer);
+		if (filter.matchesNothing()) {
+			return 0;
+		}
+
+		return filter.query("select count(l.id) from Loan l" + filter.where(), Long.class).getSingleResult();
+	}
+
+	@Override
+	public List<LoanView> scrollByBookIsbnOrCustomer(String isbn, String customer, Pageable pageable) {
+		return scroll(new Filter(isbn, customer), pageable);
+	}
+
+	@Override
+	public List<LoanView> scrollByBookIsbnOrCustomerAfter(String isbn, String customer, LocalDate loanDate, Long id,
+			Pageable pageable) {
+		Filter filter = new Filter(isbn, customer);
+		filter.and(SEEK);
+		filter.parameters.put("loanDate", loanDate);
+		filter.parameters.put("id", id);
+
+		return scroll(filter, pageable);
+	}
+
+	private List<LoanView> scroll(Filter filter, Pageable pageable) {
+		if (filter.matchesNothing()) {
+			return List.of();
+		}
+
+		TypedQuery<LoanView> query = filter.query(
+				LoanView.SELECT + FROM + filter.where() + " order by l.loanDate, l.id", LoanView.class);
+		if (pageable.isPaged()) {
+			query.setMaxResults(pageable.getPageSize());
+		}
+		return query.getResultList();
+	}
+
+	private class Filter {
+
+		private final StringBuilder predicates = new StringBuilder();
+		private final Map<String, Object> parameters = new HashMap<>();
+		private final boolean matchesNothing;
+
+		Filter(String isbn, String customer) {
+			boolean byIsbn = StringUtils.hasText(isbn);
+			boolean byCustomer = StringUtils.hasText(customer);
+
+			if (byIsbn && byCustomer) {
+				and("l.id in (" + BY_CUSTOMER + " union " + BY_ISBN + ")");
+			} else if (byCustomer) {
+				and("l.customer = :customer");
+			} else if (byIsbn) {
+				and("l.book.id = (select b.id from Book b where b.isbn = :isbn)");
+			}
+
+			matchesNothing = !byIsbn && !byCustomer;
+			if (byIsbn) {
+				parameters.put("isbn", isbn);
+			}
+			if (byCustomer) {
+				parameters.put("customer", customer);
+			}
+		}
+
+		boolean matchesNothing() {
+			return matchesNothing;
+		}
+
+		void and(String predicate) {
+			predicates.append(predicates.isEmpty() ? " where " : " and ").append(predicate);
+		}
+
+		String where() {
+			return predicates.toString();
+		}
+
+		<T> TypedQuery<T> query(String jpql, Class<T> type) {
+			TypedQuery<T> query = entityManager.createQuery(jpql, type);
+			parameters.forEach(query::setParameter);
+			return query;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package br.com.elegacy.libraryapi.model.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.elegacy.libraryapi.model.entity.Notification;
+
+public interface NotificationRepository extends JpaRepository<Notification, Long> {
+
+	@Query(value = "select n.id from Notification n where n.sentAt is null and n.attempts < :attempts "
+			+ " and (n.claimedUntil is null or n.claimedUntil < :now) order by n.id")
+	public List<Long> findClaimableIds(@Param("attempts") int attempts, @Param("now") LocalDateTime now,
+			Pageable pageable);
+
+	/**
+	 * Claims the notifications still pending and not claimed by another
+	 * dispatch, and returns how many it got; the others were claimed first
+	 * elsewhere.
+	 */
+	@Transactional
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query(value = "update Notification n set n.claimedBy = :claim, n.claimedUntil = :claimedUntil "
+			+ " where n.id in :ids and n.sentAt is null and (n.claimedUntil is null or n.claimedUntil < :now)")
+	public int claim(@Param("ids") Collection<Long> ids, @Param("claim") String claim,
+			@Param("now") LocalDateTime now, @Param("claimedUntil") LocalDateTime claimedUntil);
+
+	public List<Notification> findByClaimedByOrderById(String claimedBy);
+
+}
@@ -0,0 +1,20 @@
+package br.com.elegacy.libraryapi.service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of one {@link BookImportService} import: how many rows were read, how
+ * many became books, how many were rejected and why, for the first rejected
+ * rows up to the configured limit.
+ */
+public record BookImportReport(long rows, long imported, long rejected, List<RowError> errors, Duration elapsed) {
+
+	public record RowError(long line, String isbn, String message) {
+	}
+
+	public double rowsPerSecond() {
+		double seconds = elapsed.toNanos() / 1_000_000_000d;
+		return seconds > 0 ? rows / seconds : rows;
+	}
+}
@@ -0,0 +1,13 @@
+package br.com.elegacy.libraryapi.service;
+
+import java.io.Reader;
+
+public interface BookImportService {
+
+	public enum Format {
+		NDJSON, CSV
+	}
+
+	public BookImportReport importBooks(Reader reader, Format format);
+
+}
@@ -6,6 +6,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.projection.BookView;
 
 public interface BookService {
 
@@ -17,7 +18,7 @@ public interface BookService {
 
 	public Book update(Book book);
 
-	public Page<Book> find(Book filter, Pageable pageRequest);
+	public Page<BookView> find(Book filter, Pageable pageRequest);
 
 	public Optional<Book> getBookByIsbn(String isbn);
 
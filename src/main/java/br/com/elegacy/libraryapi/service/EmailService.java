@@ -4,6 +4,8 @@ import java.util.List;
 
 public interface EmailService {
 
-	public void sendMails(String message, List<String> mailsList);
+	public MailDispatchReport sendMails(String message, List<String> mailsList);
+
+	public MailDispatchReport sendMails(String subject, String message, List<String> mailsList);
 
 }
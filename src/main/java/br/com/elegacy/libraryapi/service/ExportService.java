@@ -0,0 +1,15 @@
+package br.com.elegacy.libraryapi.service;
+
+import java.io.OutputStream;
+
+public interface ExportService {
+
+	public enum Format {
+		NDJSON, CSV
+	}
+
+	public long exportBooks(OutputStream out, Format format);
+
+	public long exportLoans(OutputStream out, Format format);
+
+}
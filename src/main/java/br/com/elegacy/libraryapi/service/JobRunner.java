@@ -0,0 +1,29 @@
+package br.com.elegacy.libraryapi.service;
+
+import java.time.LocalDate;
+
+/**
+ * Runs a scheduled job split in shards across every node of the application.
+ * Each shard is leased in the database to a single node at a time and its
+ * progress is checkpointed, so a run interrupted on one node is resumed, from
+ * where it stopped, by the next node that takes the lease.
+ */
+public interface JobRunner {
+
+	/**
+	 * Processes every shard of the job whose run of {@code runDate} is not
+	 * completed and whose lease this node gets, and returns how many shards it
+	 * completed.
+	 */
+	public int run(String job, LocalDate runDate, int shards, ShardTask task);
+
+	@FunctionalInterface
+	public interface ShardTask {
+
+		/**
+		 * Processes the next chunk of the shard after the {@code checkpoint} id and
+		 * returns the last id processed, or null when nothing was left.
+		 */
+		public Long process(int shard, Long checkpoint);
+	}
+}
@@ -1,14 +1,19 @@
 package br.com.elegacy.libraryapi.service;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import br.com.elegacy.libraryapi.api.dto.LoanCursor;
 import br.com.elegacy.libraryapi.api.dto.LoanFilterDTO;
 import br.com.elegacy.libraryapi.model.entity.Book;
 import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.projection.LateLoan;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
 
 public interface LoanService {
 
@@ -18,10 +23,29 @@ public interface LoanService {
 
 	public Loan update(Loan loan);
 
-	public Page<Loan> find(LoanFilterDTO loanFilterDTO, Pageable pageable);
+	public Page<LoanView> find(LoanFilterDTO loanFilterDTO, Pageable pageable);
 
-	public Page<Loan> getLoansByBook(Book book, Pageable pageable);
+	public Slice<LoanView> scroll(LoanFilterDTO loanFilterDTO, LoanCursor after, int size);
+
+	public long count(LoanFilterDTO loanFilterDTO);
+
+	public Page<LoanView> getLoansByBook(Book book, Pageable pageable);
+
+	public Slice<LoanView> scrollLoansByBook(Book book, LoanCursor after, int size);
+
+	public long countLoansByBook(Book book);
 	
-	public List<Loan> getAllLateLoans();
+	/**
+	 * Returns up to {@code size} overdue loans of the shard with an id greater
+	 * than {@code afterId}, ordered by id, so the whole set can be walked in
+	 * bounded chunks. A loan belongs to the shard {@code id mod shards}.
+	 */
+	public List<LateLoan> getLateLoans(int shard, int shards, Long afterId, int size);
+
+	/**
+	 * Answers from the overdue loan index how many open loans are overdue on the
+	 * date and which of them became overdue that day.
+	 */
+	public OverdueLoans getOverdueLoans(LocalDate date);
 
 }
@@ -0,0 +1,17 @@
+package br.com.elegacy.libraryapi.service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of one {@link EmailService} dispatch: how many recipients were
+ * reached, which ones could not be after every retry and how fast it went.
+ */
+public record MailDispatchReport(int recipients, int messages, int sent, List<String> failedRecipients,
+		Duration elapsed) {
+
+	public double recipientsPerSecond() {
+		double seconds = elapsed.toNanos() / 1_000_000_000d;
+		return seconds > 0 ? sent / seconds : sent;
+	}
+}
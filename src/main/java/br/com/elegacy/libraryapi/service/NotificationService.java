@@ -0,0 +1,17 @@
+package br.com.elegacy.libraryapi.service;
+
+import br.com.elegacy.libraryapi.model.entity.Loan;
+
+public interface NotificationService {
+
+	public void loanCreated(Loan loan);
+
+	public void loanReturned(Loan loan);
+
+	/**
+	 * Hands the pending notifications to the {@link EmailService} in batches and
+	 * returns how many were sent.
+	 */
+	public int dispatchPending();
+
+}
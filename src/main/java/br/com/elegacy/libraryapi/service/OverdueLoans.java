@@ -0,0 +1,11 @@
+package br.com.elegacy.libraryapi.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Overdue loans on a day: how many open loans are overdue and the ids of those
+ * that became overdue on that very day.
+ */
+public record OverdueLoans(LocalDate date, long overdue, List<Long> becameOverdue) {
+}
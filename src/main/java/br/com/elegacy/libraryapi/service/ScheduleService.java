@@ -1,38 +1,109 @@
 package br.com.elegacy.libraryapi.service;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.api.config.MetricsConfig;
+import br.com.elegacy.libraryapi.model.projection.LateLoan;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class ScheduleService {
 
-	private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
+	public static final String LATE_LOANS_JOB = "late-loans";
+
+	private static final String CRON_LATE_LOANS = "${application.jobs.late-loans.cron:0 */10 * * * ?}";
 
 	@NonNull
 	private final LoanService loanService;
 	
 	@NonNull
 	private final EmailService emailService;
+
+	@NonNull
+	private final NotificationService notificationService;
+
+	@NonNull
+	private final JobRunner jobRunner;
+
+	@NonNull
+	private final MeterRegistry meterRegistry;
 	
 	@Value("${application.mail.lateloans.message}")
 	private String message;
-	
+
+	@Value("${application.mail.lateloans.batch-size:500}")
+	private int batchSize;
+
+	@Value("${application.jobs.late-loans.shards:1}")
+	private int shards;
+
+	/**
+	 * Mails the overdue loans once a day. The trigger fires through the day, but
+	 * only the shards whose run of the day is not completed are leased, so every
+	 * node can be scheduled and an interrupted run is resumed on the next trigger.
+	 * The overdue loans are recorded only by the triggers that processed a shard,
+	 * not by the ones finding every shard completed or leased to another node.
+	 */
 	@Scheduled(cron = CRON_LATE_LOANS)
 	public void sendMailToLateLoans() {
-		List<Loan> allLateLoans = loanService.getAllLateLoans();
+		int shardCount = Math.max(1, shards);
+		AtomicBoolean processed = new AtomicBoolean();
+		AtomicLong overdue = new AtomicLong();
+
+		jobRunner.run(LATE_LOANS_JOB, LocalDate.now(), shardCount, (shard, lastId) -> {
+			processed.set(true);
+			return sendMailToLateLoans(shard, shardCount, lastId, overdue);
+		});
+
+		if (!processed.get()) {
+			return;
+		}
+
+		DistributionSummary.builder("library.jobs.late-loans.overdue")
+				.description("Overdue loans mailed by each run of the late loans job on this node")
+				.register(meterRegistry)
+				.record(overdue.get());
+	}
 
-		List<String> mailsList = allLateLoans.stream()
-				.map(Loan::getCustomerEmail)
+	/**
+	 * Mails the next id ordered chunk of overdue loans of the shard, so only one
+	 * chunk of e-mails is held in memory however large the backlog is.
+	 */
+	private Long sendMailToLateLoans(int shard, int shardCount, Long lastId, AtomicLong overdue) {
+		List<LateLoan> lateLoans = loanService.getLateLoans(shard, shardCount, lastId, batchSize);
+		if (lateLoans.isEmpty()) {
+			return null;
+		}
+		overdue.addAndGet(lateLoans.size());
+
+		List<String> mailsList = lateLoans.stream()
+				.map(LateLoan::customerEmail)
+				.filter(Objects::nonNull)
 				.toList();
 
-		emailService.sendMails(message, mailsList);
+		if (!mailsList.isEmpty()) {
+			emailService.sendMails(message, mailsList);
+		}
+
+		return lateLoans.get(lateLoans.size() - 1).id();
+	}
+
+	@Scheduled(fixedDelayString = "${application.outbox.delay:5000}")
+	public void dispatchNotifications() {
+		notificationService.dispatchPending();
 	}
 }
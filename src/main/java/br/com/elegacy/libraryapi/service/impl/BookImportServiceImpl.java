@@ -0,0 +1,319 @@
+package br.com.elegacy.libraryapi.service.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.elegacy.libraryapi.api.dto.BookDTO;
+import br.com.elegacy.libraryapi.api.mapper.BookMapper;
+import br.com.elegacy.libraryapi.exception.BusinessException;
+import br.com.elegacy.libraryapi.exception.ConstraintViolations;
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.repository.BookRepository;
+import br.com.elegacy.libraryapi.service.BookImportReport;
+import br.com.elegacy.libraryapi.service.BookImportReport.RowError;
+import br.com.elegacy.libraryapi.service.BookImportService;
+import br.com.elegacy.libraryapi.service.index.BookSearchIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Imports a catalog read line by line, so the body is never held in memory.
+ * Valid rows are gathered in chunks; each chunk looks up its isbns already
+ * registered with a single query and inserts the rest in its own transaction,
+ * which Hibernate sends as JDBC batches. A chunk the database still refuses is
+ * saved again row by row so only the offending rows are reported.
+ * <p>
+ * The persistence context is cleared after each chunk, since with open session
+ * in view every transaction of the request shares it, and only the first
+ * rejected rows are kept for the report, so the memory used does not grow with
+ * the size of the catalog. An isbn repeated in an earlier chunk is reported as
+ * already registered.
+ */
+@Service
+@Slf4j
+public class BookImportServiceImpl implements BookImportService {
+
+	private static final List<String> CSV_COLUMNS = List.of("title", "author", "isbn");
+
+	private final BookRepository bookRepository;
+	private final BookSearchIndex bookSearchIndex;
+	private final BookMapper bookMapper;
+	private final ObjectMapper objectMapper;
+	private final Validator validator;
+	private final TransactionTemplate transactionTemplate;
+	private final EntityManager entityManager;
+
+	@Value("${application.books.import.batch-size:1000}")
+	private int batchSize;
+
+	@Value("${application.books.import.max-errors:1000}")
+	private int maxErrors = 1000;
+
+	public BookImportServiceImpl(BookRepository bookRepository, BookSearchIndex bookSearchIndex,
+			BookMapper bookMapper, ObjectMapper objectMapper, Validator validator,
+			PlatformTransactionManager transactionManager, EntityManager entityManager) {
+		this.bookRepository = bookRepository;
+		this.entityManager = entityManager;
+		this.bookSearchIndex = bookSearchIndex;
+		this.bookMapper = bookMapper;
+		this.objectMapper = objectMapper;
+		this.validator = validator;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	@Override
+	public BookImportReport importBooks(Reader reader, Format format) {
+		long start = System.nanoTime();
+
+		Rejections errors = new Rejections(maxErrors);
+		Set<String> isbns = new HashSet<>();
+		List<Row> chunk = new ArrayList<>();
+		long rows = 0;
+		long imported = 0;
+
+		try (BufferedReader lines = new BufferedReader(reader)) {
+			int[] columns = null;
+			long number = 0;
+
+			for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+				number++;
+				if (line.isBlank()) {
+					continue;
+				}
+				if (format == Format.CSV && columns == null) {
+					columns = readCsvHeader(line);
+					continue;
+				}
+
+				rows++;
+				Row row = read(number, line, format, columns, isbns, errors);
+				if (row != null) {
+					chunk.add(row);
+				}
+				if (chunk.size() >= Math.max(1, batchSize)) {
+					imported += insert(chunk, errors);
+					chunk.clear();
+					isbns.clear();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		imported += insert(chunk, errors);
+
+		BookImportReport report = new BookImportReport(rows, imported, errors.count(), errors.first(),
+				Duration.ofNanos(System.nanoTime() - start));
+
+		log.info(" imported {} of {} books ({} rejected) at {} rows/s", report.imported(), report.rows(),
+				report.rejected(), String.format(Locale.ROOT, "%.1f", report.rowsPerSecond()));
+
+		return report;
+	}
+
+	private Row read(long number, String line, Format format, int[] columns, Set<String> isbns,
+			Rejections errors) {
+		BookDTO bookDTO;
+		try {
+			bookDTO = format == Format.CSV ? readCsv(line, columns) : objectMapper.readValue(line, BookDTO.class);
+		} catch (JsonProcessingException | IllegalArgumentException e) {
+			bookDTO = null;
+		}
+		if (bookDTO == null) {
+			errors.add(new RowError(number, null, "Malformed row."));
+			return null;
+		}
+
+		Set<ConstraintViolation<BookDTO>> violations = validator.validate(bookDTO);
+		if (!violations.isEmpty()) {
+			errors.add(new RowError(number, bookDTO.getIsbn(), violations.stream()
+					.map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+					.sorted()
+					.collect(Collectors.joining(", "))));
+			return null;
+		}
+
+		if (!isbns.add(bookDTO.getIsbn())) {
+			errors.add(new RowError(number, bookDTO.getIsbn(), "Isbn repeated in the import"));
+			return null;
+		}
+
+		Book book = bookMapper.toEntity(bookDTO);
+		book.setId(null);
+
+		return new Row(number, book);
+	}
+
+	/**
+	 * Inserts the chunk skipping the isbns already registered and returns how
+	 * many books were saved.
+	 */
+	private int insert(List<Row> chunk, Rejections errors) {
+		if (chunk.isEmpty()) {
+			return 0;
+		}
+
+		Set<String> registered = bookRepository.findIsbnsIn(chunk.stream().map(row -> row.book().getIsbn()).toList());
+
+		List<Row> fresh = new ArrayList<>(chunk.size());
+		for (Row row : chunk) {
+			if (registered.contains(row.book().getIsbn())) {
+				errors.add(new RowError(row.line(), row.book().getIsbn(), "Isbn already registered"));
+			} else {
+				fresh.add(row);
+			}
+		}
+
+		List<Book> saved;
+		try {
+			saved = transactionTemplate.execute(status -> {
+				List<Book> books = bookRepository.saveAll(fresh.stream().map(Row::book).toList());
+				bookRepository.flush();
+				entityManager.clear();
+				return books;
+			});
+		} catch (DataIntegrityViolationException e) {
+			saved = insertOneByOne(fresh, errors);
+		}
+
+		bookSearchIndex.indexAll(saved);
+
+		return saved.size();
+	}
+
+	private List<Book> insertOneByOne(List<Row> rows, Rejections errors) {
+		List<Book> saved = new ArrayList<>(rows.size());
+		for (Row row : rows) {
+			Book book = row.book();
+			book.setId(null);
+			try {
+				saved.add(transactionTemplate.execute(status -> {
+					Book savedBook = bookRepository.saveAndFlush(book);
+					entityManager.clear();
+					return savedBook;
+				}));
+			} catch (DataIntegrityViolationException e) {
+				errors.add(new RowError(row.line(), book.getIsbn(),
+						ConstraintViolations.isViolationOf(e, Book.ISBN_CONSTRAINT) ? "Isbn already registered"
+								: "Row refused by the database."));
+			}
+		}
+		return saved;
+	}
+
+	private int[] readCsvHeader(String line) {
+		List<String> header = splitCsv(line).stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).toList();
+
+		int[] columns = CSV_COLUMNS.stream().mapToInt(header::indexOf).toArray();
+		for (int column : columns) {
+			if (column < 0) {
+				throw new BusinessException("The CSV header must name the title, author and isbn columns.");
+			}
+		}
+		return columns;
+	}
+
+	private BookDTO readCsv(String line, int[] columns) {
+		List<String> values = splitCsv(line);
+
+		return BookDTO.builder()
+				.title(value(values, columns[0]))
+				.author(value(values, columns[1]))
+				.isbn(value(values, columns[2]))
+				.build();
+	}
+
+	private static String value(List<String> values, int column) {
+		return column < values.size() ? values.get(column).trim() : null;
+	}
+
+	/**
+	 * Splits one CSV line, honouring double-quoted values with escaped quotes.
+	 * Quoted values spanning more than one line are not supported.
+	 */
+	private static List<String> splitCsv(String line) {
+		List<String> values = new ArrayList<>();
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					value.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					value.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				values.add(value.toString());
+				value.setLength(0);
+			} else {
+				value.append(c);
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("Unterminated quoted value");
+		}
+		values.add(value.toString());
+
+		return values;
+	}
+
+	private record Row(long line, Book book) {
+	}
+
+	/**
+	 * Counts every rejected row but keeps only the first ones.
+	 */
+	private static final class Rejections {
+
+		private final List<RowError> first = new ArrayList<>();
+		private final int limit;
+		private long count;
+
+		private Rejections(int limit) {
+			this.limit = limit;
+		}
+
+		private void add(RowError error) {
+			count++;
+			if (first.size() < limit) {
+				first.add(error);
+			}
+		}
+
+		private long count() {
+			return count;
+		}
+
+		private List<RowError> first() {
+			return List.copyOf(first);
+		}
+	}
+}
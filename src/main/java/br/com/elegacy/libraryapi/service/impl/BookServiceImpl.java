@@ -1,39 +1,142 @@
 package br.com.elegacy.libraryapi.service.impl;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import br.com.elegacy.libraryapi.api.config.MetricsConfig;
 import br.com.elegacy.libraryapi.exception.BusinessException;
+import br.com.elegacy.libraryapi.exception.ConstraintViolations;
 import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.projection.BookView;
 import br.com.elegacy.libraryapi.model.repository.BookRepository;
 import br.com.elegacy.libraryapi.service.BookService;
+import br.com.elegacy.libraryapi.service.index.BookSearchIndex;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 
 @Service
+@Slf4j
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class BookServiceImpl implements BookService {
 
+	public static final String BOOKS_CACHE = "books";
+	public static final String BOOKS_BY_ISBN_CACHE = "booksByIsbn";
+
+	private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+	private static final int MAX_PENDING_CHANGES = 10_000;
+
 	private BookRepository bookRepository;
+	private BookSearchIndex bookSearchIndex;
+	private Cache booksCache;
+	private Cache booksByIsbnCache;
+	private Counter isbnConflicts;
+	private LocalDateTime refreshedSince = LocalDateTime.now();
 
-	public BookServiceImpl(BookRepository bookRepository) {
+	public BookServiceImpl(BookRepository bookRepository, BookSearchIndex bookSearchIndex,
+			CacheManager cacheManager, MeterRegistry meterRegistry) {
 		this.bookRepository = bookRepository;
+		this.bookSearchIndex = bookSearchIndex;
+		this.booksCache = cacheManager.getCache(BOOKS_CACHE);
+		this.booksByIsbnCache = cacheManager.getCache(BOOKS_BY_ISBN_CACHE);
+		this.isbnConflicts = Counter.builder("library.books.isbn.conflicts")
+				.description("Books refused for an isbn already registered")
+				.register(meterRegistry);
 	}
 
+	/**
+	 * Loads the search index at startup from the whole catalog, and again every
+	 * now and then, which drops the books deleted on the other nodes.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${application.books.search-index.rebuild:3600000}",
+			fixedDelayString = "${application.books.search-index.rebuild:3600000}")
+	@Transactional(readOnly = true)
+	public synchronized void rebuildSearchIndex() {
+		LocalDateTime start = LocalDateTime.now();
+
+		BookSearchIndex.Builder builder = BookSearchIndex.builder();
+		try (Stream<BookView> books = bookRepository.streamViews()) {
+			books.forEach(book -> builder.add(book.id(), book.version(), book.title(), book.author(), book.isbn()));
+		}
+		bookSearchIndex.replace(builder);
+		refreshedSince = start.minus(REFRESH_OVERLAP);
+
+		log.info(" book search index loaded with {} books", bookSearchIndex.size());
+	}
+
+	/**
+	 * Indexes the books created or updated since the last refresh, on any node,
+	 * and folds them into the index once they pile up. Each refresh reads back
+	 * an overlap of the previous one, for the clocks of the nodes and the
+	 * transactions committed late; reading a book again does no harm.
+	 */
+	@Scheduled(initialDelayString = "${application.books.search-index.refresh:30000}",
+			fixedDelayString = "${application.books.search-index.refresh:30000}")
+	@Transactional(readOnly = true)
+	public synchronized void refreshSearchIndex() {
+		LocalDateTime start = LocalDateTime.now();
+
+		List<BookView> books = bookRepository.findViewsByUpdatedAtAfter(refreshedSince);
+		books.forEach(book -> bookSearchIndex.index(book.id(), book.version(), book.title(), book.author(),
+				book.isbn()));
+		refreshedSince = start.minus(REFRESH_OVERLAP);
+
+		if (bookSearchIndex.pendingChanges() > MAX_PENDING_CHANGES) {
+			bookSearchIndex.compact();
+		}
+
+		log.debug(" book search index refreshed with {} books", books.size());
+	}
+
+	/**
+	 * Inserts the book straight away and lets the unique isbn constraint reject
+	 * a duplicate, so concurrent registrations of the same isbn cannot both pass.
+	 */
 	@Override
 	public Book save(Book book) {
-		if (bookRepository.existsByIsbn(book.getIsbn())) {
-			throw new BusinessException("Isbn already registered");
-		}
+		Book savedBook = saveAndFlush(book);
+		bookSearchIndex.index(savedBook);
+		cache(savedBook);
 
-		return bookRepository.save(book);
+		return savedBook;
 	}
 
+	/**
+	 * Reads through the books cache. The cache keeps a detached copy of each
+	 * book and every lookup, hit or miss, returns a new detached copy, so the
+	 * caller gets the same book whatever the cache holds and changing it never
+	 * changes the cached one.
+	 */
 	@Override
 	public Optional<Book> getById(Long id) {
-		return this.bookRepository.findById(id);
+		Book cached = this.booksCache.get(id, Book.class);
+		if (cached != null) {
+			return Optional.of(copy(cached));
+		}
+
+		return this.bookRepository.findById(id).map(this::cacheAndCopy);
 	}
 
 	@Override
@@ -43,7 +146,8 @@ public class BookServiceImpl implements BookService {
 		}
 
 		this.bookRepository.delete(book);
-
+		this.bookSearchIndex.remove(book.getId());
+		evict(book);
 	}
 
 	@Override
@@ -52,11 +156,72 @@ public class BookServiceImpl implements BookService {
 			throw new IllegalArgumentException("Book id cant be null");
 		}
 
-		return this.bookRepository.save(book);
+		Book updatedBook = saveAndFlush(book);
+		this.bookSearchIndex.index(updatedBook);
+		evict(book);
+		cache(updatedBook);
+
+		return updatedBook;
 	}
 
+	private Book saveAndFlush(Book book) {
+		try {
+			return this.bookRepository.saveAndFlush(book);
+		} catch (DataIntegrityViolationException e) {
+			if (ConstraintViolations.isViolationOf(e, Book.ISBN_CONSTRAINT)) {
+				isbnConflicts.increment();
+				throw new BusinessException("Isbn already registered");
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Answers the search from {@link BookSearchIndex} and only goes to the
+	 * database to read the columns of the books of the requested page. Requests
+	 * the index can't narrow down, with no term as long as a trigram, and those
+	 * sorted by anything other than the id go to the paged query by example,
+	 * which still loads the entities, though read-only.
+	 * <p>
+	 * A book deleted on another node is left out of the page until the index is
+	 * rebuilt, though still counted.
+	 */
 	@Override
-	public Page<Book> find(Book filter, Pageable pageRequest) {
+	@Transactional(readOnly = true)
+	public Page<BookView> find(Book filter, Pageable pageRequest) {
+		if (pageRequest.getSort().isSorted()) {
+			return findByExample(filter, pageRequest);
+		}
+		if (!BookSearchIndex.isSelective(filter.getTitle(), filter.getAuthor(), filter.getIsbn())) {
+			return findByExample(filter, pageRequest.isPaged()
+					? PageRequest.of(pageRequest.getPageNumber(), pageRequest.getPageSize(), Sort.by("id"))
+					: pageRequest);
+		}
+
+		List<Long> ids = bookSearchIndex.search(filter.getTitle(), filter.getAuthor(), filter.getIsbn());
+		if (filter.getId() != null) {
+			ids = ids.contains(filter.getId()) ? List.of(filter.getId()) : List.of();
+		}
+
+		if (pageRequest.isUnpaged()) {
+			return new PageImpl<>(load(ids), pageRequest, ids.size());
+		}
+
+		int from = (int) Math.min(pageRequest.getOffset(), ids.size());
+		int to = Math.min(from + pageRequest.getPageSize(), ids.size());
+
+		return new PageImpl<>(load(ids.subList(from, to)), pageRequest, ids.size());
+	}
+
+	private List<BookView> load(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return List.of();
+		}
+
+		return this.bookRepository.findViewsByIdIn(ids);
+	}
+
+	private Page<BookView> findByExample(Book filter, Pageable pageRequest) {
 		Example<Book> example = Example.of(filter,
 				ExampleMatcher
 						.matching()
@@ -64,12 +229,65 @@ public class BookServiceImpl implements BookService {
 						.withIgnoreNullValues()
 						.withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
 
-		return this.bookRepository.findAll(example, pageRequest);
+		return this.bookRepository.findAll(example, pageRequest)
+				.map(book -> new BookView(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+						book.getVersion()));
 	}
 
+	/**
+	 * Reads through the isbn cache, which only maps an isbn to the book id. The
+	 * book itself comes from {@link #getById(Long)} and an entry whose book no
+	 * longer has that isbn is dropped and read again from the database.
+	 */
 	@Override
-	public Optional<Book> getBookByIsbn(String isbn) {	
-		return this.bookRepository.findByIsbn(isbn);
+	public Optional<Book> getBookByIsbn(String isbn) {
+		Long id = this.booksByIsbnCache.get(isbn, Long.class);
+		if (id != null) {
+			Optional<Book> book = getById(id).filter(found -> isbn.equals(found.getIsbn()));
+			if (book.isPresent()) {
+				return book;
+			}
+			this.booksByIsbnCache.evict(isbn);
+		}
+
+		return this.bookRepository.findByIsbn(isbn).map(this::cacheAndCopy);
+	}
+
+	private Book cacheAndCopy(Book book) {
+		cache(book);
+		return copy(book);
+	}
+
+	private void cache(Book book) {
+		this.booksCache.put(book.getId(), copy(book));
+		if (book.getIsbn() != null) {
+			this.booksByIsbnCache.put(book.getIsbn(), book.getId());
+		}
+	}
+
+	/**
+	 * Evicts the book and the isbn it was cached under, which differs from the
+	 * informed one when an update changes the isbn.
+	 */
+	private void evict(Book book) {
+		Book cached = this.booksCache.get(book.getId(), Book.class);
+		if (cached != null && cached.getIsbn() != null) {
+			this.booksByIsbnCache.evict(cached.getIsbn());
+		}
+		if (book.getIsbn() != null) {
+			this.booksByIsbnCache.evict(book.getIsbn());
+		}
+		this.booksCache.evict(book.getId());
+	}
+
+	private static Book copy(Book book) {
+		return Book.builder()
+				.id(book.getId())
+				.title(book.getTitle())
+				.author(book.getAuthor())
+				.isbn(book.getIsbn())
+				.version(book.getVersion())
+				.build();
 	}
 
 }
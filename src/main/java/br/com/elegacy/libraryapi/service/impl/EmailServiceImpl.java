@@ -1,37 +1,229 @@
 package br.com.elegacy.libraryapi.service.impl;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import br.com.elegacy.libraryapi.api.config.MailDispatchProperties;
+import br.com.elegacy.libraryapi.api.config.MetricsConfig;
+import br.com.elegacy.libraryapi.api.config.VirtualThreads;
 import br.com.elegacy.libraryapi.service.EmailService;
-import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
+import br.com.elegacy.libraryapi.service.MailDispatchReport;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Sends one mail to many recipients as a pipeline: the recipients are
+ * deduplicated, split into small messages, and the messages are sent in
+ * groups, each group over its own SMTP connection, by a bounded pool of
+ * workers sharing a rate limit. Messages the server rejects are retried with
+ * exponential backoff and whatever still fails is reported instead of failing
+ * the whole dispatch.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class EmailServiceImpl implements EmailService {
 
-	@NonNull
+	private static final String SUBJECT = "Book with overdue loan.";
+
 	private final JavaMailSender javaMailSender;
+	private final MailDispatchProperties properties;
+	private final MailRateLimiter rateLimiter;
+	private final ExecutorService executor;
+	private final Timer smtpTimer;
+	private final Counter mailsSent;
+	private final Counter mailsFailed;
 
 	@Value("${application.mail.default-remetent}")
 	private String remetent;
 
+	public EmailServiceImpl(JavaMailSender javaMailSender, MailDispatchProperties properties,
+			@Value("${application.threads.virtual.enabled:false}") boolean virtualThreads, MeterRegistry meterRegistry) {
+		this.javaMailSender = javaMailSender;
+		this.properties = properties;
+		this.rateLimiter = new MailRateLimiter(properties.getRatePerSecond());
+		// the pool size still bounds the open SMTP connections when the workers are virtual
+		this.executor = Executors.newFixedThreadPool(Math.max(1, properties.getConcurrency()),
+				virtualThreads ? VirtualThreads.factory("mail-dispatch-")
+						: new CustomizableThreadFactory("mail-dispatch-"));
+		this.smtpTimer = Timer.builder("library.mail.smtp")
+				.description("Sends of a group of messages to the SMTP server")
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+		this.mailsSent = Counter.builder("library.mail.recipients")
+				.description("Recipients of the dispatched mails")
+				.tag("outcome", "sent")
+				.register(meterRegistry);
+		this.mailsFailed = Counter.builder("library.mail.recipients")
+				.description("Recipients of the dispatched mails")
+				.tag("outcome", "failed")
+				.register(meterRegistry);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+
 	@Override
-	public void sendMails(String message, List<String> mailsList) {
-		String[] mails = mailsList.toArray(new String[mailsList.size()]);
+	public MailDispatchReport sendMails(String message, List<String> mailsList) {
+		return sendMails(SUBJECT, message, mailsList);
+	}
+
+	@Override
+	public MailDispatchReport sendMails(String subject, String message, List<String> mailsList) {
+		long start = System.nanoTime();
+
+		List<String> recipients = deduplicate(mailsList);
+		List<SimpleMailMessage> messages = createMessages(subject, message, recipients);
+
+		AtomicInteger sent = new AtomicInteger();
+		List<String> failedRecipients = Collections.synchronizedList(new ArrayList<>());
 
-		SimpleMailMessage simpleMailMessage = new SimpleMailMessage();		
-		simpleMailMessage.setFrom(remetent);
-		simpleMailMessage.setSubject("Book with overdue loan.");
-		simpleMailMessage.setText(message);
-		simpleMailMessage.setTo(mails);
+		CompletableFuture<?>[] sessions = partition(messages, properties.getMessagesPerSession())
+				.stream()
+				.map(session -> CompletableFuture.runAsync(() -> send(session, sent, failedRecipients), executor))
+				.toArray(CompletableFuture[]::new);
 
-		javaMailSender.send(simpleMailMessage);
+		CompletableFuture.allOf(sessions).join();
+
+		MailDispatchReport report = new MailDispatchReport(recipients.size(), messages.size(), sent.get(),
+				List.copyOf(failedRecipients), Duration.ofNanos(System.nanoTime() - start));
+
+		log.info(" dispatched mail to {} of {} recipients in {} messages ({} failed) at {} recipients/s",
+				report.sent(), report.recipients(), report.messages(), report.failedRecipients().size(),
+				String.format(Locale.ROOT, "%.1f", report.recipientsPerSecond()));
+
+		mailsSent.increment(report.sent());
+		mailsFailed.increment(report.failedRecipients().size());
+
+		return report;
 	}
 
+	/**
+	 * Sends a group of messages over one connection, retrying only the messages
+	 * that failed, until they go through or the attempts run out.
+	 */
+	private void send(List<SimpleMailMessage> session, AtomicInteger sent, List<String> failedRecipients) {
+		List<SimpleMailMessage> pending = session;
+
+		for (int attempt = 1; !pending.isEmpty(); attempt++) {
+			List<SimpleMailMessage> failed = trySend(pending);
+			sent.addAndGet(recipients(pending) - recipients(failed));
+
+			boolean retry = !failed.isEmpty() && attempt < properties.getMaxAttempts()
+					&& sleep(properties.getBackoff().multipliedBy(1L << (attempt - 1)));
+
+			if (!failed.isEmpty() && !retry) {
+				failed.forEach(mail -> failedRecipients.addAll(recipientsOf(mail)));
+				return;
+			}
+
+			pending = failed;
+		}
+	}
+
+	private List<SimpleMailMessage> trySend(List<SimpleMailMessage> messages) {
+		try {
+			rateLimiter.acquire(messages.size());
+			smtpTimer.record(() -> javaMailSender.send(messages.toArray(new SimpleMailMessage[0])));
+			return List.of();
+		} catch (MailSendException e) {
+			log.warn(" failed to send {} of {} messages: {}", e.getFailedMessages().size(), messages.size(),
+					e.getMessage());
+
+			return e.getFailedMessages().isEmpty()
+					? messages
+					: messages.stream().filter(e.getFailedMessages()::containsKey).toList();
+		} catch (MailException e) {
+			log.warn(" failed to send {} messages: {}", messages.size(), e.getMessage());
+			return messages;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return messages;
+		}
+	}
+
+	private List<SimpleMailMessage> createMessages(String subject, String message, List<String> recipients) {
+		int recipientsPerMessage = Math.max(1, properties.getRecipientsPerMessage());
+
+		return partition(recipients, recipientsPerMessage)
+				.stream()
+				.map(group -> {
+					SimpleMailMessage simpleMailMessage = new SimpleMailMessage();
+					simpleMailMessage.setFrom(remetent);
+					simpleMailMessage.setSubject(subject);
+					simpleMailMessage.setText(message);
+
+					if (recipientsPerMessage == 1) {
+						simpleMailMessage.setTo(group.get(0));
+					} else {
+						simpleMailMessage.setTo(remetent);
+						simpleMailMessage.setBcc(group.toArray(new String[0]));
+					}
+
+					return simpleMailMessage;
+				})
+				.toList();
+	}
+
+	private List<String> deduplicate(List<String> mailsList) {
+		Map<String, String> recipients = new LinkedHashMap<>();
+		for (String mail : mailsList) {
+			if (mail != null && !mail.isBlank()) {
+				recipients.putIfAbsent(mail.trim().toLowerCase(Locale.ROOT), mail.trim());
+			}
+		}
+		return new ArrayList<>(recipients.values());
+	}
+
+	private static List<String> recipientsOf(SimpleMailMessage message) {
+		String[] recipients = message.getBcc() != null ? message.getBcc() : message.getTo();
+		return recipients != null ? List.of(recipients) : List.of();
+	}
+
+	private static int recipients(List<SimpleMailMessage> messages) {
+		return messages.stream().mapToInt(message -> recipientsOf(message).size()).sum();
+	}
+
+	private static <T> List<List<T>> partition(List<T> values, int size) {
+		int chunk = Math.max(1, size);
+		List<List<T>> partitions = new ArrayList<>();
+		for (int from = 0; from < values.size(); from += chunk) {
+			partitions.add(values.subList(from, Math.min(from + chunk, values.size())));
+		}
+		return partitions;
+	}
+
+	private static boolean sleep(Duration duration) {
+		try {
+			TimeUnit.MILLISECONDS.sleep(duration.toMillis());
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
 }
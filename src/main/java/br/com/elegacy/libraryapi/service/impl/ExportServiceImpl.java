@@ -0,0 +1,167 @@
+package br.com.elegacy.libraryapi.service.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import br.com.elegacy.libraryapi.api.dto.BookDTO;
+import br.com.elegacy.libraryapi.api.dto.LoanDTO;
+import br.com.elegacy.libraryapi.api.mapper.BookMapper;
+import br.com.elegacy.libraryapi.api.mapper.LoanMapper;
+import br.com.elegacy.libraryapi.model.repository.BookRepository;
+import br.com.elegacy.libraryapi.model.repository.LoanRepository;
+import br.com.elegacy.libraryapi.service.ExportService;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes whole tables as they are read from a database cursor, inside a single
+ * read-only transaction. The rows are read into projections, so the
+ * persistence context stays empty, and each row is written as soon as it is
+ * read, so the memory used does not grow with the table.
+ */
+@Service
+@Slf4j
+public class ExportServiceImpl implements ExportService {
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private static final List<String> BOOK_COLUMNS = List.of("id", "title", "author", "isbn");
+	private static final List<String> LOAN_COLUMNS = List.of("id", "customer", "email", "loanDate", "status",
+			"returnedAt", "isbn", "title", "author");
+
+	private final BookRepository bookRepository;
+	private final LoanRepository loanRepository;
+	private final BookMapper bookMapper;
+	private final LoanMapper loanMapper;
+	private final ObjectMapper objectMapper;
+	private final TransactionTemplate transactionTemplate;
+
+	public ExportServiceImpl(BookRepository bookRepository, LoanRepository loanRepository, BookMapper bookMapper,
+			LoanMapper loanMapper, ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+		this.bookRepository = bookRepository;
+		this.loanRepository = loanRepository;
+		this.bookMapper = bookMapper;
+		this.loanMapper = loanMapper;
+		this.objectMapper = objectMapper;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+	}
+
+	@Override
+	public long exportBooks(OutputStream out, Format format) {
+		return export("books", out, format, bookRepository::streamViews, BookDTO.class, bookMapper::toDTO,
+				BOOK_COLUMNS, book -> Arrays.asList(book.id(), book.title(), book.author(), book.isbn()));
+	}
+
+	@Override
+	public long exportLoans(OutputStream out, Format format) {
+		return export("loans", out, format, loanRepository::streamViews, LoanDTO.class, loanMapper::toDTO,
+				LOAN_COLUMNS, loan -> Arrays.asList(loan.id(), loan.customer(), loan.customerEmail(),
+						loan.loanDate(), loan.status(), loan.returnedAt(), loan.book().isbn(), loan.book().title(),
+						loan.book().author()));
+	}
+
+	private <T, D> long export(String name, OutputStream out, Format format, Supplier<Stream<T>> source,
+			Class<D> type, Function<T, D> toDTO, List<String> header, Function<T, List<?>> columns) {
+		long start = System.nanoTime();
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+		long rows = transactionTemplate.execute(status -> {
+			try (Stream<T> stream = source.get()) {
+				return format == Format.CSV
+						? writeCsv(stream.iterator(), writer, header, columns)
+						: writeNdjson(stream.iterator(), writer, type, toDTO);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+
+		log.info(" exported {} {} as {} in {} ms", rows, name, format, (System.nanoTime() - start) / 1_000_000);
+
+		return rows;
+	}
+
+	private <T, D> long writeNdjson(Iterator<T> rows, Writer writer, Class<D> type, Function<T, D> toDTO)
+			throws IOException {
+		ObjectWriter objectWriter = objectMapper.writerFor(type)
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+		// the target belongs to the caller, and every line ends with its own separator
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		generator.setRootValueSeparator(null);
+
+		long count = 0;
+		for (; rows.hasNext(); count++) {
+			objectWriter.writeValue(generator, toDTO.apply(rows.next()));
+			generator.writeRaw('\n');
+		}
+		generator.close();
+		writer.flush();
+
+		return count;
+	}
+
+	private <T> long writeCsv(Iterator<T> rows, Writer writer, List<String> header, Function<T, List<?>> columns)
+			throws IOException {
+		writeCsvLine(writer, header);
+
+		long count = 0;
+		for (; rows.hasNext(); count++) {
+			writeCsvLine(writer, columns.apply(rows.next()));
+		}
+		writer.flush();
+
+		return count;
+	}
+
+	private static void writeCsvLine(Writer writer, List<?> values) throws IOException {
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			writeCsvValue(writer, values.get(i));
+		}
+		writer.write("\r\n");
+	}
+
+	/**
+	 * Quotes the values holding a separator, a quote or a line break, doubling
+	 * the quotes inside them.
+	 */
+	private static void writeCsvValue(Writer writer, Object value) throws IOException {
+		if (value == null) {
+			return;
+		}
+
+		String text = value.toString();
+		if (text.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+			writer.write(text);
+			return;
+		}
+
+		writer.write('"');
+		writer.write(text.replace("\"", "\"\""));
+		writer.write('"');
+	}
+}
@@ -0,0 +1,122 @@
+package br.com.elegacy.libraryapi.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import br.com.elegacy.libraryapi.model.entity.JobLease;
+import br.com.elegacy.libraryapi.model.repository.JobLeaseRepository;
+import br.com.elegacy.libraryapi.service.JobRunner;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Leases the shards through conditional updates of their job_lease rows, each
+ * in its own short transaction, so no lock is held while a chunk is processed.
+ * Every checkpoint also extends the lease; a node that finds its lease taken
+ * over stops working on the shard.
+ */
+@Service
+@Slf4j
+public class JobRunnerImpl implements JobRunner {
+
+	private final JobLeaseRepository jobLeaseRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final String node;
+
+	@Value("${application.jobs.lease:10m}")
+	private Duration lease = Duration.ofMinutes(10);
+
+	public JobRunnerImpl(JobLeaseRepository jobLeaseRepository, PlatformTransactionManager transactionManager,
+			@Value("${application.jobs.node-id:}") String node) {
+		this.jobLeaseRepository = jobLeaseRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.node = StringUtils.hasText(node) ? node : UUID.randomUUID().toString();
+	}
+
+	@Override
+	public int run(String job, LocalDate runDate, int shards, ShardTask task) {
+		int completed = 0;
+
+		// each node starts from a different shard, so nodes triggered together rarely contend
+		int first = Math.floorMod(node.hashCode(), shards);
+		for (int i = 0; i < shards; i++) {
+			int shard = (first + i) % shards;
+
+			Long checkpoint = acquire(job, shard, runDate);
+			if (checkpoint != null && process(job, shard, checkpoint, task)) {
+				completed++;
+			}
+		}
+
+		return completed;
+	}
+
+	/**
+	 * Takes the lease of the shard and returns the checkpoint to resume from, or
+	 * null when another node holds the shard or its run is already completed.
+	 */
+	private Long acquire(String job, int shard, LocalDate runDate) {
+		createLease(job, shard);
+
+		return transactionTemplate.execute(status -> {
+			LocalDateTime now = LocalDateTime.now();
+			if (jobLeaseRepository.acquire(job, shard, runDate, node, now, now.plus(lease)) == 0) {
+				return null;
+			}
+
+			JobLease jobLease = jobLeaseRepository.findById(new JobLease.Key(job, shard)).orElseThrow();
+			if (!runDate.equals(jobLease.getRunDate())) {
+				jobLease.setRunDate(runDate);
+				jobLease.setCheckpoint(0L);
+				jobLease.setCompletedAt(null);
+			} else if (jobLease.getCheckpoint() > 0) {
+				log.info(" resuming {} shard {} after {}", job, shard, jobLease.getCheckpoint());
+			}
+			return jobLease.getCheckpoint();
+		});
+	}
+
+	private boolean process(String job, int shard, Long checkpoint, ShardTask task) {
+		try {
+			for (Long next = task.process(shard, checkpoint); next != null; next = task.process(shard, checkpoint)) {
+				Long processed = next;
+				Integer updated = transactionTemplate.execute(status -> jobLeaseRepository.checkpoint(job, shard, node,
+						processed, LocalDateTime.now().plus(lease)));
+				if (updated == null || updated == 0) {
+					log.warn(" lost the lease of {} shard {} after {}", job, shard, processed);
+					return false;
+				}
+				checkpoint = processed;
+			}
+		} catch (RuntimeException e) {
+			transactionTemplate.executeWithoutResult(status -> jobLeaseRepository.release(job, shard, node));
+			throw e;
+		}
+
+		transactionTemplate.executeWithoutResult(
+				status -> jobLeaseRepository.complete(job, shard, node, LocalDateTime.now()));
+		return true;
+	}
+
+	private void createLease(String job, int shard) {
+		if (jobLeaseRepository.existsById(new JobLease.Key(job, shard))) {
+			return;
+		}
+
+		try {
+			transactionTemplate.executeWithoutResult(status -> jobLeaseRepository.create(job, shard));
+		} catch (DataIntegrityViolationException e) {
+			// another node created it first
+		}
+	}
+}
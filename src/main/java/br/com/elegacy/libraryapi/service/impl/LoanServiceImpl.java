@@ -1,36 +1,151 @@
 package br.com.elegacy.libraryapi.service.impl;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import br.com.elegacy.libraryapi.api.config.MetricsConfig;
+import br.com.elegacy.libraryapi.api.dto.LoanCursor;
 import br.com.elegacy.libraryapi.api.dto.LoanFilterDTO;
 import br.com.elegacy.libraryapi.exception.BusinessException;
+import br.com.elegacy.libraryapi.exception.ConstraintViolations;
 import br.com.elegacy.libraryapi.model.entity.Book;
 import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
+import br.com.elegacy.libraryapi.model.projection.ChangedLoan;
+import br.com.elegacy.libraryapi.model.projection.LateLoan;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
+import br.com.elegacy.libraryapi.model.projection.OpenLoan;
 import br.com.elegacy.libraryapi.model.repository.LoanRepository;
 import br.com.elegacy.libraryapi.service.LoanService;
+import br.com.elegacy.libraryapi.service.NotificationService;
+import br.com.elegacy.libraryapi.service.OverdueLoans;
+import br.com.elegacy.libraryapi.service.index.OverdueLoanIndex;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 
 @Service
+@Slf4j
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class LoanServiceImpl implements LoanService {
 
+	private static final int INDEX_LOAD_PAGE_SIZE = 1000;
+
+	private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+	/**
+	 * Each change copies the pending ones into a new snapshot of the overdue
+	 * loan index, so they are kept few.
+	 */
+	private static final int MAX_PENDING_CHANGES = 1_000;
+
 	private final LoanRepository loanRepository;
+	private final NotificationService notificationService;
+	private final OverdueLoanIndex overdueLoanIndex;
+	private final Counter alreadyLoanedRejections;
+	private LocalDateTime refreshedSince = LocalDateTime.now();
 
-	public LoanServiceImpl(LoanRepository loanRepository) {
+	@Value("${application.loan.days:4}")
+	private int loanDays = 4;
+
+	public LoanServiceImpl(LoanRepository loanRepository, NotificationService notificationService,
+			OverdueLoanIndex overdueLoanIndex, MeterRegistry meterRegistry) {
 		this.loanRepository = loanRepository;
+		this.notificationService = notificationService;
+		this.overdueLoanIndex = overdueLoanIndex;
+		this.alreadyLoanedRejections = Counter.builder("library.loans.rejected")
+				.description("Loans refused for a book already loaned")
+				.tag("reason", "already-loaned")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Loads the overdue loan index at startup from every open loan, and again
+	 * every now and then, as a safety net for the changes the refresh misses.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${application.loan.overdue-index.rebuild:3600000}",
+			fixedDelayString = "${application.loan.overdue-index.rebuild:3600000}")
+	public synchronized void rebuildOverdueLoanIndex() {
+		LocalDateTime start = LocalDateTime.now();
+
+		OverdueLoanIndex.Builder builder = OverdueLoanIndex.builder();
+		Long lastId = 0L;
+		List<OpenLoan> openLoans;
+		do {
+			openLoans = loanRepository.findOpenLoansAfter(lastId, PageRequest.ofSize(INDEX_LOAD_PAGE_SIZE));
+			openLoans.forEach(openLoan -> builder.add(openLoan.id(), openLoan.version(), openLoan.loanDate()));
+			if (!openLoans.isEmpty()) {
+				lastId = openLoans.get(openLoans.size() - 1).id();
+			}
+		} while (openLoans.size() == INDEX_LOAD_PAGE_SIZE);
+
+		overdueLoanIndex.replace(builder);
+		refreshedSince = start.minus(REFRESH_OVERLAP);
+
+		log.debug(" overdue loan index loaded with {} open loans", overdueLoanIndex.size());
+	}
+
+	/**
+	 * Indexes the loans created, returned or moved since the last refresh, on
+	 * any node, and folds them into the index once they pile up. Each refresh
+	 * reads back an overlap of the previous one, for the clocks of the nodes and
+	 * the transactions committed late; reading a loan again does no harm.
+	 */
+	@Scheduled(initialDelayString = "${application.loan.overdue-index.refresh:60000}",
+			fixedDelayString = "${application.loan.overdue-index.refresh:60000}")
+	public synchronized void refreshOverdueLoanIndex() {
+		LocalDateTime start = LocalDateTime.now();
+
+		List<ChangedLoan> loans = loanRepository.findChangedLoansByUpdatedAtAfter(refreshedSince);
+		loans.forEach(loan -> {
+			if (loan.status() == LoanStatus.OPEN) {
+				overdueLoanIndex.index(loan.id(), loan.version(), loan.loanDate());
+			} else {
+				overdueLoanIndex.remove(loan.id(), loan.version());
+			}
+		});
+		refreshedSince = start.minus(REFRESH_OVERLAP);
+
+		if (overdueLoanIndex.pendingChanges() > MAX_PENDING_CHANGES) {
+			overdueLoanIndex.compact();
+		}
+
+		log.debug(" overdue loan index refreshed with {} loans", loans.size());
 	}
 
+	/**
+	 * Inserts the loan straight away and lets the unique open book constraint
+	 * reject a book that is already loaned, so there is no window between a check
+	 * and the insert for a concurrent loan of the same book.
+	 */
 	@Override
+	@Transactional
 	public Loan save(Loan loan) {
-		if (loanRepository.existsByBookAndNotReturned(loan.getBook())) {
-			throw new BusinessException("Book already loaned.");
-		}
+		Loan savedLoan = saveAndFlush(loan);
+		this.notificationService.loanCreated(savedLoan);
+		indexAfterCommit(savedLoan);
 
-		return this.loanRepository.save(loan);
+		return savedLoan;
 	}
 
 	@Override
@@ -38,27 +153,137 @@ public class LoanServiceImpl implements LoanService {
 		return this.loanRepository.findById(id);
 	}
 
+	/**
+	 * Notifies the return only when the loan goes from open to returned, read
+	 * from the stored status, so returning a loan again mails nobody.
+	 */
 	@Override
+	@Transactional
 	public Loan update(Loan loan) {
-		return this.loanRepository.save(loan);
+		Optional<LoanStatus> storedStatus = this.loanRepository.findStatusById(loan.getId());
+
+		Loan updatedLoan = saveAndFlush(loan);
+		if (storedStatus.orElse(null) == LoanStatus.OPEN && updatedLoan.getStatus() == LoanStatus.RETURNED) {
+			this.notificationService.loanReturned(updatedLoan);
+		}
+		indexAfterCommit(updatedLoan);
+
+		return updatedLoan;
 	}
 
 	@Override
-	public Page<Loan> find(LoanFilterDTO loanFilterDTO, Pageable pageable) {
+	@Transactional(readOnly = true)
+	public Page<LoanView> find(LoanFilterDTO loanFilterDTO, Pageable pageable) {
 		return this.loanRepository.findByBookIsbnOrCustomer(loanFilterDTO.getIsbn(), loanFilterDTO.getCustomer(),
 				pageable);
 	}
 
 	@Override
-	public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
+	@Transactional(readOnly = true)
+	public Slice<LoanView> scroll(LoanFilterDTO loanFilterDTO, LoanCursor after, int size) {
+		Pageable limit = PageRequest.ofSize(size + 1);
+		List<LoanView> loans = after == null
+				? this.loanRepository.scrollByBookIsbnOrCustomer(loanFilterDTO.getIsbn(), loanFilterDTO.getCustomer(),
+						limit)
+				: this.loanRepository.scrollByBookIsbnOrCustomerAfter(loanFilterDTO.getIsbn(),
+						loanFilterDTO.getCustomer(), after.getLoanDate(), after.getId(), limit);
+
+		return toSlice(loans, size);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public long count(LoanFilterDTO loanFilterDTO) {
+		return this.loanRepository.countByBookIsbnOrCustomer(loanFilterDTO.getIsbn(), loanFilterDTO.getCustomer());
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Page<LoanView> getLoansByBook(Book book, Pageable pageable) {
 		return this.loanRepository.findByBook(book, pageable);
 	}
 
 	@Override
-	public List<Loan> getAllLateLoans() {
-		final Integer loanDays = 4;
+	@Transactional(readOnly = true)
+	public Slice<LoanView> scrollLoansByBook(Book book, LoanCursor after, int size) {
+		Pageable limit = PageRequest.ofSize(size + 1);
+		List<LoanView> loans = after == null
+				? this.loanRepository.scrollByBook(book, limit)
+				: this.loanRepository.scrollByBookAfter(book, after.getLoanDate(), after.getId(), limit);
+
+		return toSlice(loans, size);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public long countLoansByBook(Book book) {
+		return this.loanRepository.countByBook(book);
+	}
+
+	@Override
+	public List<LateLoan> getLateLoans(int shard, int shards, Long afterId, int size) {
 		LocalDate threDaysAgo = LocalDate.now().minusDays(loanDays);
-		return this.loanRepository.findByLoanDateLessThanAndNotReturned(threDaysAgo);
+		return this.loanRepository.findLateLoansAfter(threDaysAgo, shard, shards, afterId, PageRequest.ofSize(size));
+	}
+
+	@Override
+	public OverdueLoans getOverdueLoans(LocalDate date) {
+		LocalDate lastOnTime = date.minusDays(loanDays);
+		OverdueLoanIndex.Snapshot openLoans = overdueLoanIndex.snapshot();
+		return new OverdueLoans(date, openLoans.countUpTo(lastOnTime), openLoans.loansOf(lastOnTime));
+	}
+
+	/**
+	 * Reflects the loan in the overdue loan index once it is committed, so a
+	 * rolled back loan never shows up there.
+	 */
+	private void indexAfterCommit(Loan loan) {
+		Long id = loan.getId();
+		Long version = loan.getVersion();
+		LocalDate loanDate = loan.getLoanDate();
+		boolean open = loan.getStatus() == LoanStatus.OPEN;
+
+		Runnable index = () -> {
+			if (open) {
+				overdueLoanIndex.index(id, version, loanDate);
+			} else {
+				overdueLoanIndex.remove(id, version);
+			}
+		};
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					index.run();
+				}
+			});
+		} else {
+			index.run();
+		}
+	}
+
+	private Loan saveAndFlush(Loan loan) {
+		try {
+			return this.loanRepository.saveAndFlush(loan);
+		} catch (DataIntegrityViolationException e) {
+			if (ConstraintViolations.isViolationOf(e, Loan.OPEN_BOOK_CONSTRAINT)) {
+				alreadyLoanedRejections.increment();
+				throw new BusinessException("Book already loaned.");
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * The scroll queries fetch one row more than requested, only to tell whether
+	 * there is a next page without counting.
+	 */
+	private Slice<LoanView> toSlice(List<LoanView> loans, int size) {
+		boolean hasNext = loans.size() > size;
+		List<LoanView> content = hasNext ? loans.subList(0, size) : loans;
+
+		return new SliceImpl<>(content, PageRequest.ofSize(size), hasNext);
 	}
 
 }
@@ -0,0 +1,36 @@
+package br.com.elegacy.libraryapi.service.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out permits evenly so that, across every caller, no more than the
+ * configured number of messages per second are handed to the SMTP server.
+ */
+class MailRateLimiter {
+
+	private final long intervalNanos;
+
+	private long nextFreeNanos = System.nanoTime();
+
+	MailRateLimiter(double permitsPerSecond) {
+		this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+	}
+
+	void acquire(int permits) throws InterruptedException {
+		if (intervalNanos == 0) {
+			return;
+		}
+
+		long waitNanos;
+		synchronized (this) {
+			long now = System.nanoTime();
+			long start = Math.max(now, nextFreeNanos);
+			nextFreeNanos = start + intervalNanos * permits;
+			waitNanos = start - now;
+		}
+
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+}
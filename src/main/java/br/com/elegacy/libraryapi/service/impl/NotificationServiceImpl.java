@@ -0,0 +1,172 @@
+package br.com.elegacy.libraryapi.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.entity.Notification;
+import br.com.elegacy.libraryapi.model.repository.NotificationRepository;
+import br.com.elegacy.libraryapi.service.EmailService;
+import br.com.elegacy.libraryapi.service.MailDispatchReport;
+import br.com.elegacy.libraryapi.service.NotificationService;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Transactional outbox for loan notifications. The loan services only write
+ * rows here, inside their own transaction, so a request never waits on the
+ * mail server and a notification is never lost on crash: it stays pending until
+ * a dispatch marks it as sent. Each dispatch first claims its batch with a
+ * conditional update, so with several nodes a notification is sent by one of
+ * them; a claim expires, so the batch of a node that died is sent again.
+ * Delivery is at least once.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationServiceImpl implements NotificationService {
+
+	@NonNull
+	private final NotificationRepository notificationRepository;
+
+	@NonNull
+	private final EmailService emailService;
+
+	@Value("${application.mail.loan-created.subject}")
+	private String loanCreatedSubject;
+
+	@Value("${application.mail.loan-created.message}")
+	private String loanCreatedMessage;
+
+	@Value("${application.mail.loan-returned.subject}")
+	private String loanReturnedSubject;
+
+	@Value("${application.mail.loan-returned.message}")
+	private String loanReturnedMessage;
+
+	@Value("${application.outbox.batch-size:100}")
+	private int batchSize;
+
+	@Value("${application.outbox.max-attempts:5}")
+	private int maxAttempts;
+
+	@Value("${application.outbox.claim:5m}")
+	private Duration claim = Duration.ofMinutes(5);
+
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void loanCreated(Loan loan) {
+		enqueue(loan, loanCreatedSubject, loanCreatedMessage);
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void loanReturned(Loan loan) {
+		enqueue(loan, loanReturnedSubject, loanReturnedMessage);
+	}
+
+	@Override
+	public int dispatchPending() {
+		int sent = 0;
+		int sentInBatch;
+		List<Notification> batch;
+
+		do {
+			batch = claimPending();
+			sentInBatch = dispatch(batch);
+			sent += sentInBatch;
+		} while (batch.size() == batchSize && sentInBatch > 0);
+
+		return sent;
+	}
+
+	/**
+	 * Claims the next batch of pending notifications and returns the ones this
+	 * dispatch got, which may be fewer when another node claimed some first.
+	 */
+	private List<Notification> claimPending() {
+		LocalDateTime now = LocalDateTime.now();
+		List<Long> ids = notificationRepository.findClaimableIds(maxAttempts, now, PageRequest.ofSize(batchSize));
+		if (ids.isEmpty()) {
+			return List.of();
+		}
+
+		String claimedBy = UUID.randomUUID().toString();
+		if (notificationRepository.claim(ids, claimedBy, now, now.plus(claim)) == 0) {
+			return List.of();
+		}
+		return notificationRepository.findByClaimedByOrderById(claimedBy);
+	}
+
+	private void enqueue(Loan loan, String subject, String message) {
+		if (loan.getCustomerEmail() == null || loan.getCustomerEmail().isBlank()) {
+			return;
+		}
+
+		String title = loan.getBook() != null ? loan.getBook().getTitle() : null;
+
+		notificationRepository.save(Notification.builder()
+				.recipient(loan.getCustomerEmail())
+				.subject(subject)
+				.message(String.format(message, title))
+				.createdAt(LocalDateTime.now())
+				.build());
+	}
+
+	/**
+	 * Sends the notifications sharing subject and message together, then marks
+	 * the delivered ones as sent and counts an attempt on the others.
+	 */
+	private int dispatch(List<Notification> batch) {
+		if (batch.isEmpty()) {
+			return 0;
+		}
+
+		Map<List<String>, List<Notification>> groups = batch.stream()
+				.collect(Collectors.groupingBy(notification -> List.of(notification.getSubject(), notification.getMessage()),
+						LinkedHashMap::new, Collectors.toList()));
+
+		int sent = 0;
+		LocalDateTime now = LocalDateTime.now();
+
+		for (List<Notification> group : groups.values()) {
+			Notification first = group.get(0);
+			List<String> recipients = group.stream().map(Notification::getRecipient).toList();
+
+			MailDispatchReport report = emailService.sendMails(first.getSubject(), first.getMessage(), recipients);
+			Set<String> failed = report.failedRecipients()
+					.stream()
+					.map(recipient -> recipient.toLowerCase(Locale.ROOT))
+					.collect(Collectors.toSet());
+
+			for (Notification notification : group) {
+				notification.setAttempts(notification.getAttempts() + 1);
+				notification.setClaimedBy(null);
+				notification.setClaimedUntil(null);
+				if (!failed.contains(notification.getRecipient().trim().toLowerCase(Locale.ROOT))) {
+					notification.setSentAt(now);
+					sent++;
+				}
+			}
+		}
+
+		notificationRepository.saveAll(batch);
+		log.info(" dispatched {} of {} pending notifications", sent, batch.size());
+
+		return sent;
+	}
+}
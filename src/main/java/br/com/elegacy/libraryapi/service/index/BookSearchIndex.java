@@ -0,0 +1,405 @@
+package br.com.elegacy.libraryapi.service.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import br.com.elegacy.libraryapi.model.entity.Book;
+
+/**
+ * In-memory trigram index over the searchable book columns (title, author and
+ * isbn). Answers case-insensitive "contains" lookups without touching the
+ * database, so {@code BookService.find} only needs the DB to hydrate the ids it
+ * returns. Only a term of at least a trigram narrows the search down; see
+ * {@link #isSelective(String, String, String)}.
+ * <p>
+ * The bulk of the index is an immutable base, built off to the side from a
+ * full read of the catalog and published at once, whose ids and posting lists
+ * are sorted primitive arrays. The books changed since then are kept in a small
+ * overlay on top of it, each change replacing the previous state of its book in
+ * a single step, so a search never misses a book being re-indexed. The newest
+ * version of a book wins, whichever way it arrives, and a removed book stays
+ * removed.
+ */
+@Component
+public class BookSearchIndex {
+
+	private static final int GRAM = 3;
+
+	private static final int FIELDS = Field.values().length;
+
+	public enum Field {
+		TITLE, AUTHOR, ISBN
+	}
+
+	private volatile State state = new State(Base.EMPTY, new ConcurrentHashMap<>());
+
+	public synchronized void index(Book book) {
+		if (book == null || book.getId() == null) {
+			return;
+		}
+
+		index(book.getId(), book.getVersion(), book.getTitle(), book.getAuthor(), book.getIsbn());
+	}
+
+	public void indexAll(Collection<Book> books) {
+		books.forEach(this::index);
+	}
+
+	/**
+	 * Indexes the book unless the index already holds a newer version of it, or
+	 * knows it was removed.
+	 */
+	public synchronized void index(Long id, Long version, String title, String author, String isbn) {
+		Document document = new Document(version(version), normalize(title, author, isbn));
+
+		State current = state;
+		Document visible = current.visible(id);
+		if (visible == null || (visible != Document.REMOVED && visible.version() <= document.version())) {
+			current.changes().put(id, document);
+		}
+	}
+
+	public synchronized void remove(Long id) {
+		state.changes().put(id, Document.REMOVED);
+	}
+
+	public synchronized void clear() {
+		state = new State(Base.EMPTY, new ConcurrentHashMap<>());
+	}
+
+	public int size() {
+		State current = state;
+		int size = current.base().size();
+		for (Map.Entry<Long, Document> change : current.changes().entrySet()) {
+			boolean inBase = current.base().position(change.getKey()) >= 0;
+			if (change.getValue() == Document.REMOVED) {
+				size -= inBase ? 1 : 0;
+			} else {
+				size += inBase ? 0 : 1;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Books changed since the base was built, which every search scans on top of
+	 * the base; {@link #compact()} folds them into a new base.
+	 */
+	public int pendingChanges() {
+		return state.changes().size();
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Publishes the base built from a full read of the catalog. The changes
+	 * already in it are dropped from the overlay, the ones newer than the read
+	 * stay on top of it.
+	 */
+	public void replace(Builder builder) {
+		publish(builder.build());
+	}
+
+	/**
+	 * Folds the overlay of changes into a new base, without reading the database.
+	 */
+	public void compact() {
+		State current = state;
+
+		Map<Long, Document> changes = new HashMap<>(current.changes());
+		Long[] changedIds = changes.keySet().toArray(new Long[0]);
+		Arrays.sort(changedIds);
+
+		Base base = current.base();
+		Builder builder = new Builder();
+		int next = 0;
+		for (int position = 0; position < base.size(); position++) {
+			long id = base.ids[position];
+			for (; next < changedIds.length && changedIds[next] < id; next++) {
+				builder.add(changedIds[next], changes.get(changedIds[next]));
+			}
+			Document changed = changes.get(id);
+			if (changed == null) {
+				builder.add(id, base.document(position));
+			}
+		}
+		for (; next < changedIds.length; next++) {
+			builder.add(changedIds[next], changes.get(changedIds[next]));
+		}
+
+		publish(builder.build());
+	}
+
+	/**
+	 * Returns the ids, in ascending order, of every book whose fields contain the
+	 * informed (non-null) terms, ignoring case. Null terms are not filtered on.
+	 */
+	public List<Long> search(String title, String author, String isbn) {
+		String[] terms = normalize(title, author, isbn);
+
+		State current = state;
+		Base base = current.base();
+		Map<Long, Document> changes = current.changes();
+
+		List<Long> ids = new ArrayList<>();
+		int[] candidates = candidates(base, terms);
+		int count = candidates == null ? base.size() : candidates.length;
+		for (int i = 0; i < count; i++) {
+			int position = candidates == null ? i : candidates[i];
+			long id = base.ids[position];
+			if (matches(base.values, position * FIELDS, terms) && (changes.isEmpty() || !changes.containsKey(id))) {
+				ids.add(id);
+			}
+		}
+
+		if (!changes.isEmpty()) {
+			changes.forEach((id, document) -> {
+				if (document != Document.REMOVED && matches(document.values(), 0, terms)) {
+					ids.add(id);
+				}
+			});
+			Collections.sort(ids);
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Tells whether a search by the terms can be narrowed down by the index: at
+	 * least one of them must be as long as a trigram. Any other search would
+	 * scan every book.
+	 */
+	public static boolean isSelective(String title, String author, String isbn) {
+		return isGram(title) || isGram(author) || isGram(isbn);
+	}
+
+	private synchronized void publish(Base base) {
+		Map<Long, Document> changes = new ConcurrentHashMap<>();
+		state.changes().forEach((id, document) -> {
+			int position = base.position(id);
+			boolean inBase = document == Document.REMOVED
+					? position < 0
+					: position >= 0 && base.versions[position] >= document.version();
+			if (!inBase) {
+				changes.put(id, document);
+			}
+		});
+
+		state = new State(base, changes);
+	}
+
+	/**
+	 * Picks the smallest posting list among all trigrams of all terms. Terms
+	 * shorter than a trigram can't be looked up and are only verified against the
+	 * candidates; if no term is long enough every book is a candidate, which is
+	 * answered with null.
+	 */
+	private static int[] candidates(Base base, String[] terms) {
+		int[] smallest = null;
+
+		for (Field field : Field.values()) {
+			String term = terms[field.ordinal()];
+			if (term == null) {
+				continue;
+			}
+			for (int i = 0; i + GRAM <= term.length(); i++) {
+				int[] positions = base.postings.getOrDefault(key(field, term.substring(i, i + GRAM)), Base.NONE);
+				if (smallest == null || positions.length < smallest.length) {
+					smallest = positions;
+				}
+			}
+		}
+
+		return smallest;
+	}
+
+	private static boolean matches(String[] values, int offset, String[] terms) {
+		for (int i = 0; i < terms.length; i++) {
+			String value = values[offset + i];
+			if (terms[i] != null && (value == null || !value.contains(terms[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isGram(String term) {
+		return term != null && term.length() >= GRAM;
+	}
+
+	private static String key(Field field, String gram) {
+		return field.ordinal() + gram;
+	}
+
+	private static String[] normalize(String title, String author, String isbn) {
+		String[] values = new String[FIELDS];
+		values[Field.TITLE.ordinal()] = normalize(title);
+		values[Field.AUTHOR.ordinal()] = normalize(author);
+		values[Field.ISBN.ordinal()] = normalize(isbn);
+		return values;
+	}
+
+	private static String normalize(String value) {
+		return value == null ? null : value.toLowerCase(Locale.ROOT);
+	}
+
+	private static long version(Long version) {
+		return version == null ? 0 : version;
+	}
+
+	/**
+	 * The indexed columns of a book and the version they were read at.
+	 */
+	private record Document(long version, String[] values) {
+
+		static final Document REMOVED = new Document(Long.MAX_VALUE, null);
+	}
+
+	/**
+	 * What a search reads, published at once: the base and the changes on top
+	 * of it. The changes map is only written under the lock of the index.
+	 */
+	private record State(Base base, Map<Long, Document> changes) {
+
+		Document visible(Long id) {
+			Document changed = changes.get(id);
+			if (changed != null) {
+				return changed;
+			}
+
+			int position = base.position(id);
+			return position < 0 ? null : base.document(position);
+		}
+	}
+
+	/**
+	 * Immutable index of a set of books in ascending id order. A book is
+	 * addressed by its position, and each posting list holds, sorted, the
+	 * positions of the books containing its trigram.
+	 */
+	private static final class Base {
+
+		static final int[] NONE = new int[0];
+
+		static final Base EMPTY = new Builder().build();
+
+		final long[] ids;
+		final long[] versions;
+		final String[] values;
+		final Map<String, int[]> postings;
+
+		Base(long[] ids, long[] versions, String[] values, Map<String, int[]> postings) {
+			this.ids = ids;
+			this.versions = versions;
+			this.values = values;
+			this.postings = postings;
+		}
+
+		int size() {
+			return ids.length;
+		}
+
+		int position(long id) {
+			return Arrays.binarySearch(ids, id);
+		}
+
+		Document document(int position) {
+			return new Document(versions[position],
+					Arrays.copyOfRange(values, position * FIELDS, (position + 1) * FIELDS));
+		}
+	}
+
+	/**
+	 * Builds a base from books added in ascending id order.
+	 */
+	public static final class Builder {
+
+		private long[] ids = new long[64];
+		private long[] versions = new long[64];
+		private String[] values = new String[64 * FIELDS];
+		private final Map<String, Positions> postings = new HashMap<>();
+		private int size;
+
+		private Builder() {
+		}
+
+		public Builder add(Long id, Long version, String title, String author, String isbn) {
+			return add(id, new Document(version(version), normalize(title, author, isbn)));
+		}
+
+		private Builder add(long id, Document document) {
+			if (document == Document.REMOVED) {
+				return this;
+			}
+			if (size > 0 && ids[size - 1] >= id) {
+				throw new IllegalArgumentException("Books must be added in ascending id order");
+			}
+
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				versions = Arrays.copyOf(versions, size * 2);
+				values = Arrays.copyOf(values, size * 2 * FIELDS);
+			}
+
+			ids[size] = id;
+			versions[size] = document.version();
+			for (Field field : Field.values()) {
+				String value = document.values()[field.ordinal()];
+				values[size * FIELDS + field.ordinal()] = value;
+				if (value == null) {
+					continue;
+				}
+				for (int i = 0; i + GRAM <= value.length(); i++) {
+					postings.computeIfAbsent(key(field, value.substring(i, i + GRAM)), k -> new Positions())
+							.add(size);
+				}
+			}
+			size++;
+
+			return this;
+		}
+
+		private Base build() {
+			Map<String, int[]> built = new HashMap<>(postings.size() * 4 / 3 + 1);
+			postings.forEach((key, positions) -> built.put(key, positions.toArray()));
+
+			return new Base(Arrays.copyOf(ids, size), Arrays.copyOf(versions, size),
+					Arrays.copyOf(values, size * FIELDS), built);
+		}
+	}
+
+	/**
+	 * Growable list of ascending positions, added once per book even when the
+	 * trigram repeats in its value.
+	 */
+	private static final class Positions {
+
+		private int[] positions = new int[4];
+		private int size;
+
+		void add(int position) {
+			if (size > 0 && positions[size - 1] == position) {
+				return;
+			}
+			if (size == positions.length) {
+				positions = Arrays.copyOf(positions, size * 2);
+			}
+			positions[size++] = position;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(positions, size);
+		}
+	}
+}
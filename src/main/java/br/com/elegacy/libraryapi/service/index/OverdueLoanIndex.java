@@ -0,0 +1,370 @@
+package br.com.elegacy.libraryapi.service.index;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory index of the open loans bucketed by the day they were taken. A loan
+ * becomes overdue a fixed number of days after its loan date, so the loans
+ * turning overdue on a day are a single bucket. The overdue ones are every
+ * bucket up to it, counted in O(log days) from the running totals of the
+ * buckets.
+ * <p>
+ * Readers work on a {@link Snapshot}, published at once: an immutable base,
+ * built off to the side from a full read of the open loans, and the loans
+ * changed since then on top of it. Every change publishes a new snapshot, so
+ * the answers read from one snapshot always agree with each other. The newest
+ * version of a loan wins, whichever way it arrives.
+ * <p>
+ * The index lives in each JVM and only sees the loans changed on its own node
+ * as they happen; the loans changed on the others are read from the database
+ * periodically.
+ */
+@Component
+public class OverdueLoanIndex {
+
+	private volatile Snapshot snapshot = new Snapshot(Base.EMPTY, Map.of());
+
+	/**
+	 * Indexes the open loan under its loan date, unless the index already holds
+	 * a newer version of it.
+	 */
+	public synchronized void index(Long id, Long version, LocalDate loanDate) {
+		if (id == null || loanDate == null) {
+			return;
+		}
+
+		change(id, new Entry(version(version), loanDate.toEpochDay()));
+	}
+
+	/**
+	 * Drops the loan, no longer open, unless the index already holds a newer
+	 * version of it.
+	 */
+	public synchronized void remove(Long id, Long version) {
+		if (id == null) {
+			return;
+		}
+
+		change(id, new Entry(version(version), Entry.CLOSED));
+	}
+
+	public synchronized void clear() {
+		snapshot = new Snapshot(Base.EMPTY, Map.of());
+	}
+
+	public Snapshot snapshot() {
+		return snapshot;
+	}
+
+	public int size() {
+		return snapshot.size();
+	}
+
+	/**
+	 * Loans changed since the base was built, which every read goes through on
+	 * top of the base; {@link #compact()} folds them into a new base.
+	 */
+	public int pendingChanges() {
+		return snapshot.changes.size();
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Publishes the base built from a full read of the open loans. The changes
+	 * already in it are dropped, the ones newer than the read stay on top of it.
+	 */
+	public void replace(Builder builder) {
+		publish(builder.build());
+	}
+
+	/**
+	 * Folds the changes into a new base, without reading the database.
+	 */
+	public void compact() {
+		Snapshot current = snapshot;
+
+		Long[] changedIds = current.changes.keySet().toArray(new Long[0]);
+		Arrays.sort(changedIds);
+
+		Base base = current.base;
+		Builder builder = new Builder();
+		int next = 0;
+		for (int position = 0; position < base.size(); position++) {
+			long id = base.ids[position];
+			for (; next < changedIds.length && changedIds[next] < id; next++) {
+				builder.add(changedIds[next], current.changes.get(changedIds[next]));
+			}
+			if (!current.changes.containsKey(id)) {
+				builder.add(id, new Entry(base.versions[position], base.days[position]));
+			}
+		}
+		for (; next < changedIds.length; next++) {
+			builder.add(changedIds[next], current.changes.get(changedIds[next]));
+		}
+
+		publish(builder.build());
+	}
+
+	private void change(Long id, Entry entry) {
+		Snapshot current = snapshot;
+		Entry visible = current.visible(id);
+		if (visible != null && visible.version() > entry.version()) {
+			return;
+		}
+
+		Map<Long, Entry> changes = new HashMap<>(current.changes);
+		changes.put(id, entry);
+		snapshot = new Snapshot(current.base, changes);
+	}
+
+	private synchronized void publish(Base base) {
+		Map<Long, Entry> changes = new HashMap<>();
+		snapshot.changes.forEach((id, entry) -> {
+			int position = base.position(id);
+			boolean inBase = entry.isOpen()
+					? position >= 0 && base.versions[position] >= entry.version()
+					: position < 0;
+			if (!inBase) {
+				changes.put(id, entry);
+			}
+		});
+
+		snapshot = new Snapshot(base, changes);
+	}
+
+	private static long version(Long version) {
+		return version == null ? 0 : version;
+	}
+
+	/**
+	 * A version of a loan: the epoch day it was taken while it is open.
+	 */
+	private record Entry(long version, long day) {
+
+		static final long CLOSED = Long.MIN_VALUE;
+
+		boolean isOpen() {
+			return day != CLOSED;
+		}
+	}
+
+	/**
+	 * The open loans at one point in time; what one request reads.
+	 */
+	public static final class Snapshot {
+
+		private final Base base;
+		private final Map<Long, Entry> changes;
+
+		private Snapshot(Base base, Map<Long, Entry> changes) {
+			this.base = base;
+			this.changes = changes;
+		}
+
+		public int size() {
+			int size = base.size();
+			for (Map.Entry<Long, Entry> change : changes.entrySet()) {
+				boolean inBase = base.position(change.getKey()) >= 0;
+				if (change.getValue().isOpen()) {
+					size += inBase ? 0 : 1;
+				} else {
+					size -= inBase ? 1 : 0;
+				}
+			}
+			return size;
+		}
+
+		/**
+		 * Returns the ids, in ascending order, of the open loans taken on the day.
+		 */
+		public List<Long> loansOf(LocalDate loanDate) {
+			long day = loanDate.toEpochDay();
+
+			List<Long> ids = new ArrayList<>();
+			for (long id : base.loansOf(day)) {
+				if (!changes.containsKey(id)) {
+					ids.add(id);
+				}
+			}
+			if (!changes.isEmpty()) {
+				changes.forEach((id, entry) -> {
+					if (entry.isOpen() && entry.day() == day) {
+						ids.add(id);
+					}
+				});
+				Collections.sort(ids);
+			}
+			return ids;
+		}
+
+		/**
+		 * Counts the open loans taken on the day or before it.
+		 */
+		public long countUpTo(LocalDate loanDate) {
+			long day = loanDate.toEpochDay();
+
+			long count = base.countUpTo(day);
+			for (Map.Entry<Long, Entry> change : changes.entrySet()) {
+				int position = base.position(change.getKey());
+				if (position >= 0 && base.days[position] <= day) {
+					count--;
+				}
+				if (change.getValue().isOpen() && change.getValue().day() <= day) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		private Entry visible(Long id) {
+			Entry changed = changes.get(id);
+			if (changed != null) {
+				return changed;
+			}
+
+			int position = base.position(id);
+			return position < 0 ? null : new Entry(base.versions[position], base.days[position]);
+		}
+	}
+
+	/**
+	 * Immutable index of a set of open loans. The loans are addressed by their
+	 * position in ascending id order, and their ids are also laid out bucket
+	 * after bucket, in ascending day order and id order within a day.
+	 */
+	private static final class Base {
+
+		static final Base EMPTY = new Builder().build();
+
+		final long[] ids;
+		final long[] versions;
+		final long[] days;
+
+		/**
+		 * The distinct days and, for each of them, where its bucket ends in
+		 * {@link #bucketIds}, which is also how many loans were taken up to it.
+		 */
+		final long[] bucketDays;
+		final int[] bucketEnds;
+		final long[] bucketIds;
+
+		Base(long[] ids, long[] versions, long[] days, long[] bucketDays, int[] bucketEnds, long[] bucketIds) {
+			this.ids = ids;
+			this.versions = versions;
+			this.days = days;
+			this.bucketDays = bucketDays;
+			this.bucketEnds = bucketEnds;
+			this.bucketIds = bucketIds;
+		}
+
+		int size() {
+			return ids.length;
+		}
+
+		int position(long id) {
+			return Arrays.binarySearch(ids, id);
+		}
+
+		long[] loansOf(long day) {
+			int bucket = Arrays.binarySearch(bucketDays, day);
+			if (bucket < 0) {
+				return new long[0];
+			}
+			return Arrays.copyOfRange(bucketIds, bucket == 0 ? 0 : bucketEnds[bucket - 1], bucketEnds[bucket]);
+		}
+
+		long countUpTo(long day) {
+			int bucket = Arrays.binarySearch(bucketDays, day);
+			int last = bucket >= 0 ? bucket : -bucket - 2;
+			return last < 0 ? 0 : bucketEnds[last];
+		}
+	}
+
+	/**
+	 * Builds a base from open loans added in ascending id order.
+	 */
+	public static final class Builder {
+
+		private long[] ids = new long[64];
+		private long[] versions = new long[64];
+		private long[] days = new long[64];
+		private int size;
+
+		private Builder() {
+		}
+
+		public Builder add(Long id, Long version, LocalDate loanDate) {
+			return add(id, new Entry(version(version), loanDate.toEpochDay()));
+		}
+
+		private Builder add(long id, Entry entry) {
+			if (!entry.isOpen()) {
+				return this;
+			}
+			if (size > 0 && ids[size - 1] >= id) {
+				throw new IllegalArgumentException("Loans must be added in ascending id order");
+			}
+
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				versions = Arrays.copyOf(versions, size * 2);
+				days = Arrays.copyOf(days, size * 2);
+			}
+
+			ids[size] = id;
+			versions[size] = entry.version();
+			days[size] = entry.day();
+			size++;
+
+			return this;
+		}
+
+		/**
+		 * Lays the ids out by bucket: counts the loans of each distinct day, and
+		 * then places each id at the next free slot of its bucket, which keeps
+		 * them in id order within the day.
+		 */
+		private Base build() {
+			long[] sortedDays = Arrays.copyOf(days, size);
+			Arrays.sort(sortedDays);
+
+			int buckets = 0;
+			for (int i = 0; i < size; i++) {
+				if (i == 0 || sortedDays[i] != sortedDays[i - 1]) {
+					buckets++;
+				}
+			}
+			long[] bucketDays = new long[buckets];
+			int[] bucketEnds = new int[buckets];
+			for (int i = 0, bucket = -1; i < size; i++) {
+				if (i == 0 || sortedDays[i] != sortedDays[i - 1]) {
+					bucketDays[++bucket] = sortedDays[i];
+				}
+				bucketEnds[bucket] = i + 1;
+			}
+
+			long[] bucketIds = new long[size];
+			int[] next = new int[buckets];
+			for (int bucket = 1; bucket < buckets; bucket++) {
+				next[bucket] = bucketEnds[bucket - 1];
+			}
+			for (int i = 0; i < size; i++) {
+				bucketIds[next[Arrays.binarySearch(bucketDays, days[i])]++] = ids[i];
+			}
+
+			return new Base(Arrays.copyOf(ids, size), Arrays.copyOf(versions, size), Arrays.copyOf(days, size),
+					bucketDays, bucketEnds, bucketIds);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+create sequence book_seq start with 1 increment by 50;
+
+create table book (
+    id bigint not null,
+    title varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    version bigint,
+    constraint pk_book primary key (id),
+    -- serves existsByIsbn, findByIsbn, findIsbnsIn and the isbn filter of the loan listings
+    constraint uk_book_isbn unique (isbn)
+);
+
+create table loan (
+    id bigint generated by default as identity,
+    customer_email varchar(255),
+    customer varchar(255),
+    book_id bigint,
+    loan_date date,
+    returned boolean,
+    version bigint,
+    open_book_id bigint,
+    constraint pk_loan primary key (id),
+    constraint fk_loan_book foreign key (book_id) references book (id),
+    constraint uk_loan_open_book unique (open_book_id)
+);
+
+-- loans of a book, in the loan_date, id order the listings scroll by
+create index ix_loan_book on loan (book_id, loan_date, id);
+
+-- loans of a customer, in the same order
+create index ix_loan_customer on loan (customer, loan_date, id);
+
+-- overdue loans: loan_date up to a day and not returned
+create index ix_loan_loan_date_returned on loan (loan_date, returned);
+
+create table notification_outbox (
+    id bigint generated by default as identity,
+    recipient varchar(255),
+    subject varchar(255),
+    message varchar(1000),
+    created_at timestamp,
+    sent_at timestamp,
+    attempts integer not null,
+    constraint pk_notification_outbox primary key (id)
+);
+
+-- pending notifications: not sent and still under the attempts limit
+create index ix_notification_outbox_pending on notification_outbox (sent_at, attempts, id);
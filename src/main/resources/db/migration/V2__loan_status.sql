@@ -0,0 +1,13 @@
+alter table loan add column status varchar(16);
+alter table loan add column returned_at timestamp;
+
+-- a loan never flagged as returned is still open; when it was returned is unknown for existing rows
+update loan set status = case when returned then 'RETURNED' else 'OPEN' end;
+
+alter table loan alter column status set not null;
+
+drop index ix_loan_loan_date_returned;
+alter table loan drop column returned;
+
+-- overdue loans: a single range over the open loans up to a loan_date, read in id order per chunk
+create index ix_loan_status_loan_date on loan (status, loan_date, id);
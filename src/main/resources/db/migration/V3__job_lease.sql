@@ -0,0 +1,11 @@
+-- one row per shard of a scheduled job: which node holds it, until when, and how far the run of the day went
+create table job_lease (
+    job varchar(64) not null,
+    shard int not null,
+    owner varchar(255),
+    leased_until timestamp,
+    run_date date,
+    checkpoint bigint,
+    completed_at timestamp,
+    constraint pk_job_lease primary key (job, shard)
+);
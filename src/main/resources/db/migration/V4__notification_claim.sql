@@ -0,0 +1,5 @@
+-- the dispatch that claimed a pending notification and until when, so each one is sent by a single node
+alter table notification_outbox add column claimed_by varchar(64);
+alter table notification_outbox add column claimed_until timestamp;
+
+create index ix_notification_outbox_claimed_by on notification_outbox (claimed_by);
@@ -0,0 +1,4 @@
+-- when a book was last written, so each node refreshes its search index with the books changed on the others
+alter table book add column updated_at timestamp;
+
+create index ix_book_updated_at on book (updated_at);
@@ -0,0 +1,4 @@
+-- when a loan was last written, so each node refreshes its overdue loan index with the loans changed on the others
+alter table loan add column updated_at timestamp;
+
+create index ix_loan_updated_at on loan (updated_at);
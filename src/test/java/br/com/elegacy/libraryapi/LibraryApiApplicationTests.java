@@ -2,9 +2,14 @@ package br.com.elegacy.libraryapi;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskHolder;
 
 import br.com.elegacy.libraryapi.api.resource.BookController;
 
@@ -14,9 +19,25 @@ class LibraryApiApplicationTests {
 	@Autowired
 	private BookController bookController;
 
+	@Autowired
+	private ThreadPoolTaskScheduler taskScheduler;
+
+	@Autowired
+	private List<ScheduledTaskHolder> scheduledTaskHolders;
+
 	@Test
 	void contextLoads() {
 		assertThat(bookController).isNotNull();		
 	}
 
+	@Test
+	@DisplayName("Should give every scheduled task a thread of its own, so a long one never holds up the others")
+	void shouldScheduleEveryTaskOnItsOwnThread() {
+		int scheduledTasks = scheduledTaskHolders.stream()
+				.mapToInt(holder -> holder.getScheduledTasks().size())
+				.sum();
+
+		assertThat(taskScheduler.getPoolSize()).isGreaterThanOrEqualTo(scheduledTasks);
+	}
+
 }
@@ -0,0 +1,46 @@
+package br.com.elegacy.libraryapi.api.config;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import br.com.elegacy.libraryapi.service.BookService;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = { "application.outbox.delay=3600000", "application.jobs.late-loans.cron=-" })
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class MetricsConfigTest {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Test
+	@DisplayName("Should export the service and repository timers with histograms to Prometheus")
+	void shouldExportServiceAndRepositoryTimers() throws Exception {
+		// Arrange
+		bookService.getBookByIsbn("123");
+
+		// Act & Assert
+		mvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(Matchers.allOf(
+						Matchers.containsString("library_service_seconds_bucket{class=\"br.com.elegacy.libraryapi.service.impl.BookServiceImpl\""),
+						Matchers.containsString("method=\"getBookByIsbn\""),
+						Matchers.containsString("spring_data_repository_invocations_seconds_bucket{exception=\"None\",method=\"findByIsbn\",repository=\"BookRepository\""),
+						Matchers.containsString("library_books_isbn_conflicts_total"))));
+	}
+}
@@ -0,0 +1,64 @@
+package br.com.elegacy.libraryapi.api.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+
+class RequestLogSamplerTest {
+
+	private final LoggerContext context = new LoggerContext();
+
+	private final RequestLogSampler sampler = new RequestLogSampler();
+
+	@BeforeEach
+	public void setUp() {
+		sampler.setRate(3);
+		sampler.start();
+	}
+
+	@Test
+	@DisplayName("Should keep one of every rate info logs of each endpoint")
+	void shouldSampleInfoLogsPerEndpoint() {
+		// Arrange
+		Logger controller = context.getLogger("br.com.elegacy.libraryapi.api.resource.BookController");
+		List<FilterReply> gets = new ArrayList<>();
+		List<FilterReply> deletes = new ArrayList<>();
+
+		// Act
+		for (int i = 0; i < 6; i++) {
+			gets.add(sampler.decide(null, controller, Level.INFO, " obtaining details for book id: {}", null, null));
+		}
+		deletes.add(sampler.decide(null, controller, Level.INFO, " delete book of id: {}", null, null));
+
+		// Assert
+		assertThat(gets).containsExactly(FilterReply.NEUTRAL, FilterReply.DENY, FilterReply.DENY,
+				FilterReply.NEUTRAL, FilterReply.DENY, FilterReply.DENY);
+		assertThat(deletes).containsExactly(FilterReply.NEUTRAL);
+	}
+
+	@Test
+	@DisplayName("Should keep every warning and every log outside the controllers")
+	void shouldKeepWarningsAndOtherLoggers() {
+		// Arrange
+		Logger controller = context.getLogger("br.com.elegacy.libraryapi.api.resource.BookController");
+		Logger service = context.getLogger("br.com.elegacy.libraryapi.service.impl.BookServiceImpl");
+
+		// Act & Assert
+		for (int i = 0; i < 3; i++) {
+			assertThat(sampler.decide(null, controller, Level.WARN, " failed", null, null))
+					.isEqualTo(FilterReply.NEUTRAL);
+			assertThat(sampler.decide(null, service, Level.INFO, " indexed", null, null))
+					.isEqualTo(FilterReply.NEUTRAL);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package br.com.elegacy.libraryapi.api.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+class VirtualThreadsTest {
+
+	private static final boolean VIRTUAL_THREADS_JRE = Runtime.version().feature() >= 21;
+
+	@Test
+	@DisplayName("Should tell whether the running JVM has virtual threads")
+	void shouldTellWhetherJvmHasVirtualThreads() {
+		assertThat(VirtualThreads.isSupported()).isEqualTo(VIRTUAL_THREADS_JRE);
+	}
+
+	@Test
+	@DisplayName("Should refuse to create virtual threads before Java 21")
+	@EnabledForJreRange(max = JRE.JAVA_20)
+	void shouldRefuseVirtualThreadsBeforeJava21() {
+		Throwable exception = catchThrowable(() -> VirtualThreads.newThreadPerTaskExecutor("test-"));
+
+		assertThat(exception).isInstanceOf(IllegalStateException.class).hasMessageContaining("Java 21");
+	}
+
+	@Test
+	@DisplayName("Should run each task on a new named virtual thread")
+	void shouldRunTasksOnVirtualThreads() throws Exception {
+		assumeTrue(VIRTUAL_THREADS_JRE, "needs Java 21 or newer");
+
+		ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+		try {
+			Thread thread = executor.submit(Thread::currentThread).get();
+
+			assertThat(thread.getName()).startsWith("test-");
+			assertThat(Thread.class.getMethod("isVirtual").invoke(thread)).isEqualTo(true);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("Should shut the request executor down with the context")
+	void shouldShutRequestExecutorDown() {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		new VirtualThreadsConfig.VirtualThreadsProtocolHandlerCustomizer(executor).destroy();
+
+		assertThat(executor.isShutdown()).isTrue();
+	}
+}
@@ -0,0 +1,57 @@
+package br.com.elegacy.libraryapi.api.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.com.elegacy.libraryapi.api.dto.BookDTO;
+import br.com.elegacy.libraryapi.api.dto.LoanDTO;
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.entity.Loan;
+
+class LoanMapperTest {
+
+	private final BookMapper bookMapper = new BookMapperImpl();
+
+	private final LoanMapper loanMapper = new LoanMapperImpl(bookMapper);
+
+	@Test
+	@DisplayName("Should map a loan with its book")
+	void shouldMapLoanWithBook() {
+		// Arrange
+		Book book = Book.builder().id(2L).title("As aventuras").author("Arthur").isbn("123").build();
+		Loan loan = Loan.builder()
+				.id(1L)
+				.book(book)
+				.customer("Jhon")
+				.customerEmail("jhon@email.com")
+				.loanDate(LocalDate.now())
+				.build();
+
+		// Act
+		LoanDTO loanDTO = loanMapper.toDTO(loan);
+
+		// Assert
+		assertThat(loanDTO.getId()).isEqualTo(1L);
+		assertThat(loanDTO.getIsbn()).isEqualTo("123");
+		assertThat(loanDTO.getCustomer()).isEqualTo("Jhon");
+		assertThat(loanDTO.getEmail()).isEqualTo("jhon@email.com");
+		assertThat(loanDTO.getBook()).isEqualTo(new BookDTO(2L, "As aventuras", "Arthur", "123"));
+	}
+
+	@Test
+	@DisplayName("Should map a book dto to an entity")
+	void shouldMapBookDTOToEntity() {
+		// Act
+		Book book = bookMapper.toEntity(new BookDTO(2L, "As aventuras", "Arthur", "123"));
+
+		// Assert
+		assertThat(book.getId()).isEqualTo(2L);
+		assertThat(book.getTitle()).isEqualTo("As aventuras");
+		assertThat(book.getAuthor()).isEqualTo("Arthur");
+		assertThat(book.getIsbn()).isEqualTo("123");
+	}
+}
@@ -0,0 +1,81 @@
+package br.com.elegacy.libraryapi.api.profiling;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.repository.BookRepository;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = { "application.profiling.sql.enabled=true", "application.outbox.delay=3600000",
+		"application.jobs.late-loans.cron=-" })
+@AutoConfigureMockMvc
+class SqlProfileEndpointTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@AfterEach
+	public void tearDown() {
+		bookRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("Should show the statements and rows of the requests by controller method")
+	void shouldShowStatementsByControllerMethod() throws Exception {
+		// Arrange
+		Book book = bookRepository.save(Book.builder().title("As aventuras").author("Arthur").isbn("123").build());
+		mvc.perform(delete("/actuator/sqlprofile")).andExpect(status().is2xxSuccessful());
+
+		// Act
+		mvc.perform(get("/api/loans").param("isbn", "123")).andExpect(status().isOk());
+		mvc.perform(get("/api/books/" + book.getId())).andExpect(status().isOk());
+
+		// Assert
+		mvc.perform(get("/actuator/sqlprofile"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("chattiest[*].signature",
+						Matchers.containsInAnyOrder("LoanController.find", "BookController.get")))
+				.andExpect(jsonPath("chattiest[?(@.signature == 'LoanController.find')].requests",
+						Matchers.contains(1)))
+				.andExpect(jsonPath("chattiest[?(@.signature == 'LoanController.find')].maxStatements",
+						Matchers.contains(Matchers.greaterThanOrEqualTo(1))))
+				.andExpect(jsonPath("slowest[?(@.signature == 'BookController.get')].rowsPerRequest",
+						Matchers.contains(1.0)));
+	}
+
+	@Test
+	@DisplayName("Should not count the dispatch completing an export as a request of its own")
+	void shouldNotCountAsyncDispatch() throws Exception {
+		// Arrange
+		bookRepository.save(Book.builder().title("As aventuras").author("Arthur").isbn("123").build());
+		mvc.perform(delete("/actuator/sqlprofile")).andExpect(status().is2xxSuccessful());
+
+		// Act
+		MvcResult export = mvc.perform(get("/api/books/export")).andExpect(request().asyncStarted()).andReturn();
+		mvc.perform(asyncDispatch(export)).andExpect(status().isOk());
+
+		// Assert
+		mvc.perform(get("/actuator/sqlprofile"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("slowest[*].signature", Matchers.not(Matchers.hasItem("BookController.export"))));
+	}
+}
@@ -0,0 +1,70 @@
+package br.com.elegacy.libraryapi.api.profiling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.com.elegacy.libraryapi.api.profiling.SqlProfileReport.RequestSignature;
+
+class SqlProfilerTest {
+
+	private final SqlProfiler sqlProfiler = new SqlProfiler();
+
+	@Test
+	@DisplayName("Should sum up the statements and rows of the requests by signature")
+	void shouldSumUpRequestsBySignature() {
+		// Arrange
+		request("LoanController.find", "select loan", "select count", "select count");
+		request("LoanController.find", "select loan");
+		request("BookController.get", "select book");
+
+		// Act
+		SqlProfileReport report = sqlProfiler.report(10);
+
+		// Assert
+		assertThat(report.chattiest()).extracting(RequestSignature::signature)
+				.containsExactly("LoanController.find", "BookController.get");
+
+		RequestSignature find = report.chattiest().get(0);
+		assertThat(find.requests()).isEqualTo(2);
+		assertThat(find.statementsPerRequest()).isEqualTo(2);
+		assertThat(find.maxStatements()).isEqualTo(3);
+		assertThat(find.rowsPerRequest()).isEqualTo(1);
+		assertThat(find.sqlMillisPerRequest()).isEqualTo(2);
+		assertThat(find.statements()).containsExactly(Map.entry("select count", 2L),
+				Map.entry("select loan", 2L));
+	}
+
+	@Test
+	@DisplayName("Should not count statements sent outside a request")
+	void shouldNotCountStatementsOutsideRequest() {
+		// Arrange
+		sqlProfiler.statement("select loan", TimeUnit.MILLISECONDS.toNanos(1));
+		sqlProfiler.row();
+
+		sqlProfiler.begin();
+		sqlProfiler.discard();
+		sqlProfiler.statement("select loan", TimeUnit.MILLISECONDS.toNanos(1));
+		sqlProfiler.end("LoanController.find");
+
+		// Act
+		SqlProfileReport report = sqlProfiler.report(10);
+
+		// Assert
+		assertThat(report.slowest()).isEmpty();
+		assertThat(report.chattiest()).isEmpty();
+	}
+
+	private void request(String signature, String... statements) {
+		sqlProfiler.begin();
+		for (String statement : statements) {
+			sqlProfiler.statement(statement, TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		sqlProfiler.row();
+		sqlProfiler.end(signature);
+	}
+}
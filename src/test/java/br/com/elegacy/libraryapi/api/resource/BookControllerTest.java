@@ -1,10 +1,21 @@
 package br.com.elegacy.libraryapi.api.resource;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
@@ -15,26 +26,37 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import br.com.elegacy.libraryapi.api.dto.BookDTO;
+import br.com.elegacy.libraryapi.api.mapper.BookMapperImpl;
+import br.com.elegacy.libraryapi.api.mapper.LoanMapperImpl;
 import br.com.elegacy.libraryapi.exception.BusinessException;
 import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.projection.BookView;
+import br.com.elegacy.libraryapi.service.BookImportReport;
+import br.com.elegacy.libraryapi.service.BookImportService;
 import br.com.elegacy.libraryapi.service.BookService;
+import br.com.elegacy.libraryapi.service.ExportService;
 import br.com.elegacy.libraryapi.service.LoanService;
 
 @ActiveProfiles("test")
 @WebMvcTest(controllers = BookController.class)
 @AutoConfigureMockMvc
+@Import({ BookMapperImpl.class, LoanMapperImpl.class, Exports.class })
 class BookControllerTest {
 
 	private static String BOOK_API = "/api/books";
@@ -48,6 +70,12 @@ class BookControllerTest {
 	@MockBean
 	private LoanService loanService;
 
+	@MockBean
+	private BookImportService bookImportService;
+
+	@MockBean
+	private ExportService exportService;
+
 	@Test
 	@DisplayName("Should create a successful book.")
 	void shouldCreateBook() throws Exception {
@@ -142,11 +170,46 @@ class BookControllerTest {
 				.andExpect(jsonPath("isbn").value(book.getIsbn()));
 	}
 
+	@Test
+	@DisplayName("Should answer not modified when the client holds the current version of the book.")
+	void shouldAnswerNotModifiedForCurrentBookVersion() throws Exception {
+		// Given
+		Long id = 1l;
+
+		Book book = createNewBook();
+		book.setId(id);
+		book.setVersion(3L);
+
+		BDDMockito.given(bookService.getById(id)).willReturn(Optional.of(book));
+
+		String etag = mockMvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/").concat(id.toString())))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(HttpHeaders.ETAG))
+				.andReturn()
+				.getResponse()
+				.getHeader(HttpHeaders.ETAG);
+
+		// When
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("/").concat(id.toString()))
+				.header(HttpHeaders.IF_NONE_MATCH, etag)
+				.accept(MediaType.APPLICATION_JSON);
+
+		// Then
+		mockMvc.perform(request)
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		book.setVersion(4L);
+		mockMvc.perform(request)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("id").value(id));
+	}
+
 	@Test
 	@DisplayName("Should return resource not found when wanted book does not exist.")
 	void shouldReturnResourceNotFoundWhenThereIsNoBook() throws Exception {
 		// Given
-		BDDMockito.given(bookService.getById(Mockito.anyLong())).willReturn(Optional.empty());
 
 		// When
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -178,7 +241,6 @@ class BookControllerTest {
 	@DisplayName("Should return resource not found when there is no book to delete.")
 	void shouldReturnNotFoundWhenThereIsNoBookDelete() throws Exception {
 		// Given
-		BDDMockito.given(bookService.getById(Mockito.anyLong())).willReturn(Optional.empty());
 
 		// When
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -257,18 +319,14 @@ class BookControllerTest {
 		// Given
 		Long id = 1L;
 
-		Book book = Book.builder()
-				.id(id)
-				.title(createNewBook().getTitle())
-				.author(createNewBook().getAuthor())
-				.isbn(createNewBook().getIsbn())
-				.build();
+		BookView book = new BookView(id, createNewBook().getTitle(), createNewBook().getAuthor(),
+				createNewBook().getIsbn(), 0L);
 
 		BDDMockito.given(bookService.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
-		.willReturn(new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 100), 1));
+		.willReturn(new PageImpl<BookView>(Arrays.asList(book), PageRequest.of(0, 100), 1));
 		
 		String queryString = String.format("?title=%s&author=%s&page=0&size=100", 
-				book.getTitle(), book.getAuthor());
+				book.title(), book.author());
 		
 		// When
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -286,6 +344,66 @@ class BookControllerTest {
 		;
 	}
 
+	@Test
+	@DisplayName("Should import a CSV body and report the rejected rows.")
+	void shouldImportBooksFromCsv() throws Exception {
+		// Given
+		BookImportReport report = new BookImportReport(2, 1, 1,
+				List.of(new BookImportReport.RowError(3, "001", "Isbn already registered")), Duration.ofMillis(5));
+		BDDMockito.given(bookImportService.importBooks(Mockito.any(Reader.class),
+				Mockito.eq(BookImportService.Format.CSV))).willReturn(report);
+
+		// When
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.post(BOOK_API.concat("/bulk"))
+				.contentType("text/csv")
+				.accept(MediaType.APPLICATION_JSON)
+				.content("title,author,isbn\nAs aventuras,Arthur,002\nMemorias,Fulano,001\n");
+
+		// Then
+		mockMvc.perform(request)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("rows").value(2))
+				.andExpect(jsonPath("imported").value(1))
+				.andExpect(jsonPath("rejected").value(1))
+				.andExpect(jsonPath("errors[0].line").value(3))
+				.andExpect(jsonPath("errors[0].message").value("Isbn already registered"));
+	}
+
+	@Test
+	@DisplayName("Should stream the catalog export compressed when the client accepts gzip")
+	void shouldStreamGzipCompressedBookExport() throws Exception {
+		// Given
+		String line = "{\"id\":1,\"title\":\"As aventuras\",\"author\":\"Arthur\",\"isbn\":\"001\"}\n";
+
+		BDDMockito.given(exportService.exportBooks(Mockito.any(OutputStream.class),
+				Mockito.eq(ExportService.Format.NDJSON))).willAnswer(invocation -> {
+					invocation.<OutputStream>getArgument(0).write(line.getBytes(StandardCharsets.UTF_8));
+					return 1L;
+				});
+
+		// When
+		MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+				.get(BOOK_API.concat("/export"))
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+				.andExpect(MockMvcResultMatchers.request().asyncStarted())
+				.andReturn();
+
+		// Then
+		byte[] body = mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+				.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books.ndjson\""))
+				.andReturn()
+				.getResponse()
+				.getContentAsByteArray();
+
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+			assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(line);
+		}
+	}
+
 	private Book createNewBook() {
 		Book book = Book
 				.builder()
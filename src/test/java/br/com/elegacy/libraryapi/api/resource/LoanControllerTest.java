@@ -1,12 +1,20 @@
 package br.com.elegacy.libraryapi.api.resource;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
@@ -17,29 +25,44 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import br.com.elegacy.libraryapi.api.dto.LoanCursor;
 import br.com.elegacy.libraryapi.api.dto.LoanDTO;
 import br.com.elegacy.libraryapi.api.dto.LoanFilterDTO;
 import br.com.elegacy.libraryapi.api.dto.ReturnedLoanDTO;
+import br.com.elegacy.libraryapi.api.mapper.BookMapperImpl;
+import br.com.elegacy.libraryapi.api.mapper.LoanMapperImpl;
 import br.com.elegacy.libraryapi.exception.BusinessException;
 import br.com.elegacy.libraryapi.model.entity.Book;
 import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
+import br.com.elegacy.libraryapi.model.projection.BookView;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
 import br.com.elegacy.libraryapi.service.BookService;
+import br.com.elegacy.libraryapi.service.ExportService;
 import br.com.elegacy.libraryapi.service.LoanService;
+import br.com.elegacy.libraryapi.service.OverdueLoans;
 
 @ActiveProfiles("test")
-@WebMvcTest(controllers = LoanController.class)
+@WebMvcTest(controllers = LoanController.class, properties = "application.exports.concurrency=1")
 @AutoConfigureMockMvc
+@Import({ BookMapperImpl.class, LoanMapperImpl.class, Exports.class })
 class LoanControllerTest {
 
 	private static String LOAN_API = "/api/loans";
@@ -53,6 +76,9 @@ class LoanControllerTest {
 	@MockBean
 	private LoanService loanService;
 
+	@MockBean
+	private ExportService exportService;
+
 	@Test
 	@DisplayName("Should take out a loan")
 	void shouldTakeOutLoan() throws Exception {
@@ -186,6 +212,8 @@ class LoanControllerTest {
 		mockMvc.perform(request)
 				.andExpect(status().isOk());
 
+		assertThat(loan.getStatus()).isEqualTo(LoanStatus.RETURNED);
+		assertThat(loan.getReturnedAt()).isNotNull();
 		Mockito.verify(loanService, Mockito.times(1)).update(loan);
 	}
 
@@ -218,14 +246,13 @@ class LoanControllerTest {
 		// Given
 		Long id = 1L;
 		
-		Loan loan = createLoan();
-		loan.setId(id);
+		LoanView loan = createLoanView(id, 0L);
 
 		BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
-		.willReturn(new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
+		.willReturn(new PageImpl<LoanView>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
 		
 		String queryString = String.format("?isbn=%s&customer=%s&page=0&size=10", 
-				loan.getBook().getIsbn(), loan.getCustomer());
+				loan.book().isbn(), loan.customer());
 		
 		// When
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -243,6 +270,153 @@ class LoanControllerTest {
 		;
 	}
 	
+	@Test
+	@DisplayName("Should answer not modified when the client holds the current loans")
+	void shouldAnswerNotModifiedForCurrentLoans() throws Exception {
+		// Given
+		LoanView loan = createLoanView(1L, 0L);
+
+		BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+		.willReturn(new PageImpl<LoanView>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
+
+		String queryString = "?customer=Fulano&page=0&size=10";
+		String etag = mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat(queryString)))
+				.andReturn()
+				.getResponse()
+				.getHeader(HttpHeaders.ETAG);
+
+		// When
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(LOAN_API.concat(queryString))
+				.header(HttpHeaders.IF_NONE_MATCH, etag)
+				.accept(MediaType.APPLICATION_JSON);
+
+		// Then
+		mockMvc.perform(request)
+		.andExpect(status().isNotModified())
+		.andExpect(content().string(""));
+
+		BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+		.willReturn(new PageImpl<LoanView>(Arrays.asList(createLoanView(1L, 1L)), PageRequest.of(0, 10), 1));
+		mockMvc.perform(request)
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("content", Matchers.hasSize(1)));
+	}
+
+	@Test
+	@DisplayName("Should scroll loans by filter with a cursor")
+	void shouldScrollLoansByFilter() throws Exception {
+		// Given
+		LoanView loan = createLoanView(1L, 0L);
+
+		BDDMockito.given(loanService.scroll(Mockito.any(LoanFilterDTO.class), Mockito.isNull(), Mockito.eq(1)))
+				.willReturn(new SliceImpl<LoanView>(Arrays.asList(loan), PageRequest.ofSize(1), true));
+
+		String next = new LoanCursor(loan.loanDate(), 1L).encode();
+
+		// When
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(LOAN_API.concat("?customer=Jhon&after=&size=1"))
+				.accept(MediaType.APPLICATION_JSON);
+
+		// Then
+		mockMvc.perform(request)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("content", Matchers.hasSize(1)))
+				.andExpect(jsonPath("next").value(next))
+				.andExpect(jsonPath("totalElements").doesNotExist());
+
+		Mockito.verify(loanService, Mockito.never()).count(Mockito.any(LoanFilterDTO.class));
+	}
+
+	@Test
+	@DisplayName("Should reject an invalid cursor")
+	void shouldRejectInvalidCursor() throws Exception {
+		// When
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(LOAN_API.concat("?customer=Jhon&after=invalid"))
+				.accept(MediaType.APPLICATION_JSON);
+
+		// Then
+		mockMvc.perform(request)
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("errors[0]").value("Invalid cursor."));
+	}
+
+	@Test
+	@DisplayName("Should report the overdue loans of today")
+	void shouldReportOverdueLoans() throws Exception {
+		// Given
+		LocalDate today = LocalDate.now();
+		BDDMockito.given(loanService.getOverdueLoans(today)).willReturn(new OverdueLoans(today, 3, List.of(7L)));
+
+		// When
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(LOAN_API.concat("/overdue"))
+				.accept(MediaType.APPLICATION_JSON);
+
+		// Then
+		mockMvc.perform(request)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("date").value(today.toString()))
+				.andExpect(jsonPath("overdue").value(3))
+				.andExpect(jsonPath("becameOverdue[0]").value(7));
+	}
+
+	@Test
+	@DisplayName("Should stream the loan export as CSV")
+	void shouldStreamLoanExportAsCsv() throws Exception {
+		// Given
+		String csv = "id,customer,email,isbn,title,author\r\n1,Jhon,jhon@email.com,321,As aventuras,Arthur\r\n";
+
+		BDDMockito.given(exportService.exportLoans(Mockito.any(OutputStream.class),
+				Mockito.eq(ExportService.Format.CSV))).willAnswer(invocation -> {
+					invocation.<OutputStream>getArgument(0).write(csv.getBytes(StandardCharsets.UTF_8));
+					return 1L;
+				});
+
+		// When
+		MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export?format=CSV")))
+				.andExpect(MockMvcResultMatchers.request().asyncStarted())
+				.andReturn();
+
+		// Then
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("text/csv"))
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+				.andExpect(content().string(csv));
+	}
+
+	@Test
+	@DisplayName("Should refuse an export while every export thread is busy")
+	void shouldRefuseExportWhenExportsAreSaturated() throws Exception {
+		// Given
+		CountDownLatch release = new CountDownLatch(1);
+
+		BDDMockito.given(exportService.exportLoans(Mockito.any(OutputStream.class),
+				Mockito.eq(ExportService.Format.NDJSON))).willAnswer(invocation -> {
+					release.await(10, TimeUnit.SECONDS);
+					return 0L;
+				});
+
+		MvcResult running = mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export")))
+				.andExpect(MockMvcResultMatchers.request().asyncStarted())
+				.andReturn();
+
+		// When
+		ResultActions refused = mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export")));
+		release.countDown();
+
+		// Then
+		refused.andExpect(status().isServiceUnavailable())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_DISPOSITION))
+				.andExpect(jsonPath("errors", Matchers.hasSize(1)));
+
+		mockMvc.perform(asyncDispatch(running))
+				.andExpect(status().isOk());
+	}
+
 	private Loan createLoan() {
 		Book book = Book.builder()
 				.id(1L)
@@ -259,5 +433,10 @@ class LoanControllerTest {
 		
 		return savingLoan;
 	}
+
+	private LoanView createLoanView(Long id, Long version) {
+		return new LoanView(id, "Jhon", null, LocalDate.now(), LoanStatus.OPEN, null, version,
+				new BookView(1L, null, null, "321", 0L));
+	}
 	
 }
@@ -1,6 +1,7 @@
 package br.com.elegacy.libraryapi.model.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 import java.util.Optional;
 
@@ -9,8 +10,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 
+import br.com.elegacy.libraryapi.exception.ConstraintViolations;
 import br.com.elegacy.libraryapi.model.entity.Book;
 
 @ActiveProfiles("test")
@@ -23,36 +26,6 @@ class BookRepositoryTest {
 	@Autowired
 	private BookRepository bookRepository;
 
-	@Test
-	@DisplayName("Should return true when there is a book with informed isbn")
-	void shouldReturnTrueWhenIsbnExists() {
-		// Arrange
-		String isbn = "123";
-
-		Book book = createNewBook(isbn);
-
-		testEntityManager.persist(book);
-
-		// Act
-		boolean exists = bookRepository.existsByIsbn(isbn);
-
-		// Assert
-		assertThat(exists).isTrue();
-	}
-
-	@Test
-	@DisplayName("It should return false when there is no book with informed isbn")
-	void shouldReturnFalseWhenIsbnDoesntExists() {
-		// Arrange
-		String isbn = "123";
-
-		// Act
-		boolean exists = bookRepository.existsByIsbn(isbn);
-
-		// Assert
-		assertThat(exists).isFalse();
-	}
-
 	@Test
 	@DisplayName("Should get a book by id.")
 	void shouldGetBookById() {
@@ -80,6 +53,21 @@ class BookRepositoryTest {
 		assertThat(savedBook.getId()).isNotNull();
 	}
 
+	@Test
+	@DisplayName("Should not allow two books with the same isbn.")
+	void shouldNotAllowDuplicateIsbn() {
+		// Arrange
+		testEntityManager.persist(createNewBook("123"));
+
+		// Act
+		Throwable exception = catchThrowable(() -> bookRepository.saveAndFlush(createNewBook("123")));
+
+		// Assert
+		assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+		assertThat(ConstraintViolations.isViolationOf((DataIntegrityViolationException) exception,
+				Book.ISBN_CONSTRAINT)).isTrue();
+	}
+
 	@Test
 	@DisplayName("Should delete a book.")
 	void shouldDeleteBook() {
@@ -1,21 +1,29 @@
 package br.com.elegacy.libraryapi.model.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 import java.time.LocalDate;
 import java.util.List;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 
+import br.com.elegacy.libraryapi.exception.ConstraintViolations;
 import br.com.elegacy.libraryapi.model.entity.Book;
 import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
+import br.com.elegacy.libraryapi.model.projection.LateLoan;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
 
 @ActiveProfiles("test")
 @DataJpaTest
@@ -27,19 +35,7 @@ class LoanRepositoryTest {
 	@Autowired
 	private TestEntityManager testEntityManager;
 
-	@Test
-	@DisplayName("Should check if there is an unreturned loan for the book")
-	void shouldCheckUnreturnedLoanBook() {
-		// Arrange
-		Loan loan = createAndPersistLoan(LocalDate.now());
-		Book book = loan.getBook();
-
-		// Act
-		boolean exists = loanRepository.existsByBookAndNotReturned(book);
-
-		// Assert
-		assertThat(exists).isTrue();
-	}
+	private int books;
 
 	@Test
 	@DisplayName("Should find loan by book isbn or customer.")
@@ -48,52 +44,209 @@ class LoanRepositoryTest {
 		Loan loan = createAndPersistLoan(LocalDate.now());
 
 		// Act
-		Page<Loan> result = loanRepository.findByBookIsbnOrCustomer("123", "Jhon", PageRequest.of(0, 10));
+		Page<LoanView> result = loanRepository.findByBookIsbnOrCustomer("123", "Jhon", PageRequest.of(0, 10));
 
 		// Assert
 		assertThat(result.getContent()).hasSize(1);
-		assertThat(result.getContent()).contains(loan);
+		assertThat(result.getContent()).singleElement().satisfies(view -> {
+			assertThat(view.id()).isEqualTo(loan.getId());
+			assertThat(view.customer()).isEqualTo("Jhon");
+			assertThat(view.book().id()).isEqualTo(loan.getBook().getId());
+			assertThat(view.book().isbn()).isEqualTo("123");
+		});
 		assertThat(result.getPageable().getPageSize()).isEqualTo(10);
 		assertThat(result.getPageable().getPageNumber()).isZero();
 		assertThat(result.getTotalElements()).isEqualTo(1);
 	}
 	
 	@Test
-	@DisplayName("Should find by loan date less than thre days ago and not returned")
-	void ShouldfindByLoanDateLessThanAndNotReturned() {
+	@DisplayName("Should find loans matching only the filters supplied.")
+	void shouldFindLoansMatchingOnlySuppliedFilters() {
 		// Arrange
-		Loan loan = createAndPersistLoan(LocalDate.now().minusDays(5));
-		
+		Loan jhonLoan = createAndPersistLoan(LocalDate.now());
+		Loan maryLoan = persistLoan("Mary");
+		Loan peterLoan = persistLoan("Peter");
+
 		// Act
-		List<Loan> result = loanRepository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
-		
+		Page<LoanView> byIsbnOrCustomer = loanRepository.findByBookIsbnOrCustomer(maryLoan.getBook().getIsbn(),
+				"Jhon", PageRequest.of(0, 10));
+		Page<LoanView> byCustomer = loanRepository.findByBookIsbnOrCustomer(null, "Peter", PageRequest.of(0, 10));
+		Page<LoanView> byIsbn = loanRepository.findByBookIsbnOrCustomer(jhonLoan.getBook().getIsbn(), "",
+				PageRequest.of(0, 10));
+		Page<LoanView> unfiltered = loanRepository.findByBookIsbnOrCustomer(null, null, PageRequest.of(0, 10));
+
 		// Assert
-		assertThat(result).hasSize(1).contains(loan);
+		assertThat(byIsbnOrCustomer.getContent()).extracting(LoanView::id)
+				.containsExactlyInAnyOrder(jhonLoan.getId(), maryLoan.getId());
+		assertThat(byCustomer.getContent()).extracting(LoanView::id).containsExactly(peterLoan.getId());
+		assertThat(byIsbn.getContent()).extracting(LoanView::id).containsExactly(jhonLoan.getId());
+		assertThat(unfiltered.getContent()).isEmpty();
+		assertThat(unfiltered.getTotalElements()).isZero();
+		assertThat(loanRepository.countByBookIsbnOrCustomer(maryLoan.getBook().getIsbn(), "Jhon")).isEqualTo(2);
+		assertThat(loanRepository.countByBookIsbnOrCustomer(null, " ")).isZero();
+		assertThat(loanRepository.scrollByBookIsbnOrCustomer(null, null, PageRequest.ofSize(10))).isEmpty();
 	}
-	
+
+	@Test
+	@DisplayName("Should read a page of loans with their books in a constant number of statements, without loading entities.")
+	void shouldLoadLoanPageWithBooksInConstantStatements() {
+		// Arrange
+		for (int i = 0; i < 10; i++) {
+			createAndPersistLoan(LocalDate.now());
+		}
+		testEntityManager.flush();
+		testEntityManager.clear();
+
+		Statistics statistics = testEntityManager.getEntityManager()
+				.getEntityManagerFactory()
+				.unwrap(SessionFactory.class)
+				.getStatistics();
+		statistics.clear();
+
+		// Act
+		Page<LoanView> result = loanRepository.findByBookIsbnOrCustomer("123", "Jhon", PageRequest.of(0, 5));
+
+		// Assert
+		assertThat(result.getContent()).hasSize(5).allSatisfy(loan -> assertThat(loan.book().title()).isNotNull());
+		assertThat(result.getTotalElements()).isEqualTo(10);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
 	@Test
-	@DisplayName("Should not find by loan date less than thre days ago and not returned")
-	void ShouldNotfindByLoanDateLessThanAndNotReturned() {
+	@DisplayName("Should read the loans of a book with the book in a constant number of statements, without loading entities.")
+	void shouldLoadLoansByBookInConstantStatements() {
 		// Arrange
+		Book book = createAndPersistLoan(LocalDate.now()).getBook();
+		for (int i = 0; i < 9; i++) {
+			persistReturnedLoan(book, LocalDate.now());
+		}
+		testEntityManager.flush();
+		testEntityManager.clear();
+
+		Statistics statistics = testEntityManager.getEntityManager()
+				.getEntityManagerFactory()
+				.unwrap(SessionFactory.class)
+				.getStatistics();
+		statistics.clear();
+
+		// Act
+		List<LoanView> result = loanRepository.scrollByBook(book, PageRequest.ofSize(5));
+
+		// Assert
+		assertThat(result).hasSize(5).allSatisfy(loan -> assertThat(loan.book().title()).isNotNull());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	@DisplayName("Should not allow a second open loan of the same book.")
+	void shouldNotAllowSecondOpenLoanOfBook() {
+		// Arrange
+		Book book = createAndPersistLoan(LocalDate.now()).getBook();
+		Loan secondLoan = Loan.builder()
+				.book(book)
+				.customer("Mary")
+				.loanDate(LocalDate.now())
+				.build();
+
+		// Act
+		Throwable exception = catchThrowable(() -> loanRepository.saveAndFlush(secondLoan));
+
+		// Assert
+		assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+		assertThat(ConstraintViolations.isViolationOf((DataIntegrityViolationException) exception,
+				Loan.OPEN_BOOK_CONSTRAINT)).isTrue();
+	}
+
+	@Test
+	@DisplayName("Should scroll loans by book isbn or customer after the cursor.")
+	void shouldScrollLoansByBookIsbnOrCustomerAfterCursor() {
+		// Arrange
+		Loan first = createAndPersistLoan(LocalDate.now().minusDays(2));
+		Loan second = createAndPersistLoan(LocalDate.now().minusDays(1));
+		Loan third = createAndPersistLoan(LocalDate.now().minusDays(1));
+
+		// Act
+		List<LoanView> firstPage = loanRepository.scrollByBookIsbnOrCustomer("123", "Jhon", PageRequest.ofSize(2));
+		List<LoanView> nextPage = loanRepository.scrollByBookIsbnOrCustomerAfter("123", "Jhon",
+				second.getLoanDate(), second.getId(), PageRequest.ofSize(2));
+
+		// Assert
+		assertThat(firstPage).extracting(LoanView::id).containsExactly(first.getId(), second.getId());
+		assertThat(nextPage).extracting(LoanView::id).containsExactly(third.getId());
+	}
+
+	@Test
+	@DisplayName("Should scroll loans by book after the cursor.")
+	void shouldScrollLoansByBookAfterCursor() {
+		// Arrange
+		Loan first = createAndPersistLoan(LocalDate.now().minusDays(1));
+		Book book = first.getBook();
+		Loan second = persistReturnedLoan(book, LocalDate.now());
 		createAndPersistLoan(LocalDate.now());
-		
+
 		// Act
-		List<Loan> result = loanRepository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
-		
+		List<LoanView> nextPage = loanRepository.scrollByBookAfter(book, first.getLoanDate(), first.getId(),
+				PageRequest.ofSize(10));
+
 		// Assert
-		assertThat(result).isEmpty();
+		assertThat(nextPage).extracting(LoanView::id).containsExactly(second.getId());
+		assertThat(loanRepository.countByBook(book)).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Should find late loans after the informed id projecting the customer email")
+	void shouldFindLateLoansAfterId() {
+		// Arrange
+		Loan first = createAndPersistLoan(LocalDate.now().minusDays(5));
+		Loan second = createAndPersistLoan(LocalDate.now().minusDays(6));
+		Loan third = createAndPersistLoan(LocalDate.now().minusDays(7));
+		createAndPersistLoan(LocalDate.now());
+
+		// Act
+		List<LateLoan> firstChunk = loanRepository.findLateLoansAfter(LocalDate.now().minusDays(4), 0, 1, 0L,
+				PageRequest.ofSize(2));
+		List<LateLoan> nextChunk = loanRepository.findLateLoansAfter(LocalDate.now().minusDays(4), 0, 1, second.getId(),
+				PageRequest.ofSize(2));
+
+		// Assert
+		assertThat(firstChunk).extracting(LateLoan::id).containsExactly(first.getId(), second.getId());
+		assertThat(firstChunk).extracting(LateLoan::customerEmail).containsOnly("jhon@email.com");
+		assertThat(nextChunk).extracting(LateLoan::id).containsExactly(third.getId());
+	}
+
+	@Test
+	@DisplayName("Should split the late loans in shards by id")
+	void shouldSplitLateLoansInShards() {
+		// Arrange
+		for (int i = 0; i < 5; i++) {
+			createAndPersistLoan(LocalDate.now().minusDays(5));
+		}
+
+		// Act
+		List<LateLoan> even = loanRepository.findLateLoansAfter(LocalDate.now().minusDays(4), 0, 2, 0L,
+				PageRequest.ofSize(10));
+		List<LateLoan> odd = loanRepository.findLateLoansAfter(LocalDate.now().minusDays(4), 1, 2, 0L,
+				PageRequest.ofSize(10));
+
+		// Assert
+		assertThat(even).extracting(LateLoan::id).allMatch(id -> id % 2 == 0);
+		assertThat(odd).extracting(LateLoan::id).allMatch(id -> id % 2 == 1);
+		assertThat(even.size() + odd.size()).isEqualTo(5);
 	}
 
 	private Loan createAndPersistLoan(LocalDate loanDate) {
 		Book book = Book.builder()
 				.title("Adventures")
 				.author("Arthur")
-				.isbn("123")
+				.isbn(String.valueOf(123 + books++))
 				.build();
 
 		Loan loan = Loan.builder()
 				.book(book)
 				.customer("Jhon")
+				.customerEmail("jhon@email.com")
 				.loanDate(loanDate)
 				.build();
 
@@ -102,4 +255,25 @@ class LoanRepositoryTest {
 
 		return loan;
 	}
+
+	private Loan persistLoan(String customer) {
+		Loan loan = createAndPersistLoan(LocalDate.now());
+		loan.setCustomer(customer);
+
+		return loan;
+	}
+
+	private Loan persistReturnedLoan(Book book, LocalDate loanDate) {
+		Loan loan = Loan.builder()
+				.book(book)
+				.customer("Jhon")
+				.loanDate(loanDate)
+				.status(LoanStatus.RETURNED)
+				.returnedAt(loanDate.atStartOfDay())
+				.build();
+
+		testEntityManager.persist(loan);
+
+		return loan;
+	}
 }
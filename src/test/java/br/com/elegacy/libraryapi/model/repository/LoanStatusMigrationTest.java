@@ -0,0 +1,50 @@
+package br.com.elegacy.libraryapi.model.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+class LoanStatusMigrationTest {
+
+	@Test
+	@DisplayName("Should migrate the returned flag of existing loans to a status")
+	void shouldMigrateReturnedFlagToStatus() {
+		EmbeddedDatabase dataSource = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.generateUniqueName(true)
+				.build();
+		try {
+			// Arrange
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+			Flyway.configure().dataSource(dataSource).target("1").load().migrate();
+
+			jdbcTemplate.update("insert into book (id, title, author, isbn) values (1, 'A', 'A', '1'), "
+					+ "(2, 'B', 'B', '2'), (3, 'C', 'C', '3')");
+			jdbcTemplate.update("insert into loan (customer, book_id, loan_date, returned, open_book_id) values "
+					+ "('never flagged', 1, current_date, null, 1), "
+					+ "('returned', 2, current_date, true, null), "
+					+ "('not returned', 3, current_date, false, 3)");
+
+			// Act
+			Flyway.configure().dataSource(dataSource).load().migrate();
+
+			// Assert
+			Map<String, Object> statuses = Map.of(
+					"never flagged", "OPEN",
+					"returned", "RETURNED",
+					"not returned", "OPEN");
+			jdbcTemplate.queryForList("select customer, status from loan")
+					.forEach(row -> assertThat(row.get("STATUS")).isEqualTo(statuses.get(row.get("CUSTOMER"))));
+		} finally {
+			dataSource.shutdown();
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package br.com.elegacy.libraryapi.model.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.entity.Notification;
+import br.com.elegacy.libraryapi.model.projection.BookView;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
+import br.com.elegacy.libraryapi.model.repository.SqlRecorder.Statement;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * Runs every repository query, asks H2 for the plan of the SQL it generated,
+ * with the values the query was run with, and fails when a table is read by a
+ * full scan instead of an index.
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+class QueryPlanTest {
+
+	private static final String TABLE_SCAN = ".tableScan";
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private LoanRepository loanRepository;
+
+	@Autowired
+	private NotificationRepository notificationRepository;
+
+	@Autowired
+	private JobLeaseRepository jobLeaseRepository;
+
+	@Autowired
+	private TestEntityManager testEntityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Book book;
+
+	private LoanView loan;
+
+	@TestConfiguration
+	static class RecordingConfig {
+
+		@Bean
+		static BeanPostProcessor sqlRecorderDataSourcePostProcessor() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					if (!(bean instanceof DataSource dataSource)) {
+						return bean;
+					}
+					return ProxyDataSourceBuilder.create(beanName, dataSource).listener(new SqlRecorder()).build();
+				}
+			};
+		}
+	}
+
+	@BeforeEach
+	public void setUp() {
+		for (int i = 0; i < 50; i++) {
+			Book saved = testEntityManager.persist(Book.builder().title("Title " + i).author("Author").isbn("isbn-" + i)
+					.build());
+			testEntityManager.persist(Loan.builder().book(saved).customer("Customer " + i)
+					.customerEmail("customer" + i + "@email.com").loanDate(LocalDate.now().minusDays(i)).build());
+			testEntityManager.persist(Notification.builder().recipient("customer" + i + "@email.com")
+					.subject("Subject").message("Message").createdAt(LocalDateTime.now()).build());
+		}
+		testEntityManager.flush();
+		testEntityManager.clear();
+
+		book = bookRepository.findByIsbn("isbn-1").orElseThrow();
+		loan = loanRepository.scrollByBook(book, PageRequest.ofSize(1)).get(0);
+		SqlRecorder.drain();
+	}
+
+	@Test
+	@DisplayName("Book queries should be answered from indexes")
+	void bookQueriesShouldUseIndexes() {
+		bookRepository.findByIsbn("isbn-1");
+		assertIndexed("findByIsbn");
+
+		bookRepository.findIsbnsIn(List.of("isbn-1", "isbn-2"));
+		assertIndexed("findIsbnsIn");
+
+		bookRepository.findViewsByIdIn(List.of(book.getId(), book.getId() + 1));
+		assertIndexed("findViewsByIdIn");
+
+		bookRepository.findViewsByUpdatedAtAfter(LocalDateTime.now().minusMinutes(1));
+		assertIndexed("findViewsByUpdatedAtAfter");
+
+		try (Stream<BookView> views = bookRepository.streamViews()) {
+			views.forEach(view -> {
+			});
+		}
+		assertIndexed("streamViews");
+	}
+
+	@Test
+	@DisplayName("Loan queries should be answered from indexes")
+	void loanQueriesShouldUseIndexes() {
+		loanRepository.findByBook(book, PageRequest.of(0, 10));
+		assertIndexed("findByBook");
+
+		loanRepository.countByBook(book);
+		assertIndexed("countByBook");
+
+		loanRepository.scrollByBook(book, PageRequest.ofSize(10));
+		assertIndexed("scrollByBook");
+
+		loanRepository.scrollByBookAfter(book, loan.loanDate(), loan.id(), PageRequest.ofSize(10));
+		assertIndexed("scrollByBookAfter");
+
+		for (String[] filter : new String[][] { { "isbn-1", "Customer 2" }, { null, "Customer 2" }, { "isbn-1", null } }) {
+			String filters = filter[0] + ", " + filter[1];
+
+			loanRepository.findByBookIsbnOrCustomer(filter[0], filter[1], PageRequest.of(0, 10));
+			assertIndexed("findByBookIsbnOrCustomer(" + filters + ")");
+
+			loanRepository.countByBookIsbnOrCustomer(filter[0], filter[1]);
+			assertIndexed("countByBookIsbnOrCustomer(" + filters + ")");
+
+			loanRepository.scrollByBookIsbnOrCustomer(filter[0], filter[1], PageRequest.ofSize(10));
+			assertIndexed("scrollByBookIsbnOrCustomer(" + filters + ")");
+
+			loanRepository.scrollByBookIsbnOrCustomerAfter(filter[0], filter[1], loan.loanDate(), loan.id(),
+					PageRequest.ofSize(10));
+			assertIndexed("scrollByBookIsbnOrCustomerAfter(" + filters + ")");
+		}
+
+		loanRepository.findByBookIsbnOrCustomer(null, null, PageRequest.of(0, 10));
+		loanRepository.countByBookIsbnOrCustomer(null, null);
+		loanRepository.scrollByBookIsbnOrCustomer(null, null, PageRequest.ofSize(10));
+		loanRepository.scrollByBookIsbnOrCustomerAfter(null, null, loan.loanDate(), loan.id(), PageRequest.ofSize(10));
+		assertThat(SqlRecorder.drain()).as("loan search without filters").isEmpty();
+
+		loanRepository.findLateLoansAfter(LocalDate.now().minusDays(40), 1, 4, 0L, PageRequest.ofSize(10));
+		assertIndexed("findLateLoansAfter");
+
+		loanRepository.findOpenLoansAfter(0L, PageRequest.ofSize(10));
+		assertIndexed("findOpenLoansAfter");
+
+		loanRepository.findChangedLoansByUpdatedAtAfter(LocalDateTime.now().minusMinutes(1));
+		assertIndexed("findChangedLoansByUpdatedAtAfter");
+	}
+
+	@Test
+	@DisplayName("Job lease queries should be answered from indexes")
+	void jobLeaseQueriesShouldUseIndexes() {
+		jobLeaseRepository.create("job", 0);
+		SqlRecorder.drain();
+
+		jobLeaseRepository.acquire("job", 0, LocalDate.now(), "node", LocalDateTime.now(), LocalDateTime.now());
+		assertIndexed("acquire");
+
+		jobLeaseRepository.checkpoint("job", 0, "node", 1L, LocalDateTime.now());
+		assertIndexed("checkpoint");
+
+		jobLeaseRepository.complete("job", 0, "node", LocalDateTime.now());
+		assertIndexed("complete");
+	}
+
+	@Test
+	@DisplayName("Notification queries should be answered from indexes")
+	void notificationQueriesShouldUseIndexes() {
+		notificationRepository.findClaimableIds(5, LocalDateTime.now(), PageRequest.ofSize(10));
+		assertIndexed("findClaimableIds");
+
+		notificationRepository.claim(List.of(1L, 2L), "claim", LocalDateTime.now(), LocalDateTime.now());
+		assertIndexed("claim");
+
+		notificationRepository.findByClaimedByOrderById("claim");
+		assertIndexed("findByClaimedByOrderById");
+	}
+
+	private void assertIndexed(String query) {
+		List<Statement> statements = SqlRecorder.drain();
+		assertThat(statements).as(query).isNotEmpty();
+
+		for (Statement statement : statements) {
+			assertThat(explain(statement)).as("plan of %s: %s %s", query, statement.sql(), statement.parameters())
+					.doesNotContain(TABLE_SCAN);
+		}
+		// the explain statements go through the same data source
+		SqlRecorder.drain();
+	}
+
+	private String explain(Statement recorded) {
+		return jdbcTemplate.execute("explain " + recorded.sql(), (PreparedStatement statement) -> {
+			int parameters = statement.getParameterMetaData().getParameterCount();
+			for (int i = 1; i <= parameters; i++) {
+				statement.setObject(i, i <= recorded.parameters().size() ? recorded.parameters().get(i - 1) : null);
+			}
+			try (ResultSet plan = statement.executeQuery()) {
+				StringBuilder lines = new StringBuilder();
+				while (plan.next()) {
+					lines.append(plan.getString(1)).append('\n');
+				}
+				return lines.toString();
+			}
+		});
+	}
+}
@@ -0,0 +1,69 @@
+package br.com.elegacy.libraryapi.model.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+/**
+ * Keeps the SQL run through the data source together with the values bound to
+ * it, so a test can look at the statements a repository method really runs.
+ */
+public class SqlRecorder implements QueryExecutionListener {
+
+	private static final List<Statement> STATEMENTS = new ArrayList<>();
+
+	/**
+	 * A statement as run, with its parameters in index order; a parameter set to
+	 * null is kept as null.
+	 */
+	public record Statement(String sql, List<Object> parameters) {
+	}
+
+	@Override
+	public void beforeQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+	}
+
+	@Override
+	public void afterQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+		synchronized (STATEMENTS) {
+			for (QueryInfo query : queries) {
+				STATEMENTS.add(new Statement(query.getQuery(), parameters(query)));
+			}
+		}
+	}
+
+	public static List<Statement> drain() {
+		synchronized (STATEMENTS) {
+			List<Statement> statements = List.copyOf(STATEMENTS);
+			STATEMENTS.clear();
+			return statements;
+		}
+	}
+
+	/**
+	 * The values of the first parameter set of the query; a batch reuses the
+	 * same SQL for the others.
+	 */
+	private static List<Object> parameters(QueryInfo query) {
+		List<Object> parameters = new ArrayList<>();
+		if (query.getParametersList().isEmpty()) {
+			return parameters;
+		}
+
+		for (ParameterSetOperation operation : query.getParametersList().get(0)) {
+			Object[] args = operation.getArgs();
+			int index = (Integer) args[0];
+			while (parameters.size() < index) {
+				parameters.add(null);
+			}
+			if (!ParameterSetOperation.isSetNullParameterOperation(operation)) {
+				parameters.set(index - 1, args[1]);
+			}
+		}
+		return parameters;
+	}
+}
@@ -0,0 +1,217 @@
+package br.com.elegacy.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import br.com.elegacy.libraryapi.api.mapper.BookMapperImpl;
+import br.com.elegacy.libraryapi.exception.BusinessException;
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.repository.BookRepository;
+import br.com.elegacy.libraryapi.service.BookImportReport.RowError;
+import br.com.elegacy.libraryapi.service.impl.BookImportServiceImpl;
+import br.com.elegacy.libraryapi.service.index.BookSearchIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ BookImportServiceImpl.class, BookMapperImpl.class, BookSearchIndex.class })
+@ImportAutoConfiguration({ JacksonAutoConfiguration.class, ValidationAutoConfiguration.class })
+@TestPropertySource(properties = { "application.books.import.batch-size=2",
+		"application.books.import.max-errors=5" })
+class BookImportServiceTest {
+
+	@Autowired
+	private BookImportService bookImportService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private BookSearchIndex bookSearchIndex;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@AfterEach
+	public void tearDown() {
+		bookRepository.deleteAll();
+		bookSearchIndex.clear();
+	}
+
+	@Test
+	@DisplayName("Should import the valid rows and report every rejected one by line")
+	void shouldImportValidRowsAndReportRejectedOnes() {
+		// Arrange
+		bookRepository.save(Book.builder().title("Memorias").author("Fulano").isbn("100").build());
+		String body = """
+				{"title":"As aventuras","author":"Arthur","isbn":"001"}
+				{"title":"Aventuras na selva","author":"Fulano","isbn":"002"}
+				{"author":"Fulano","isbn":"003"}
+				{"title":
+				{"title":"Outra edicao","author":"Arthur","isbn":"001"}
+
+				{"title":"Memorias","author":"Fulano","isbn":"100"}
+				{"title":"Contos","author":"Ciclano","isbn":"004"}
+				""";
+
+		// Act
+		BookImportReport report = bookImportService.importBooks(new StringReader(body),
+				BookImportService.Format.NDJSON);
+
+		// Assert
+		assertThat(report.rows()).isEqualTo(7);
+		assertThat(report.imported()).isEqualTo(3);
+		assertThat(report.rejected()).isEqualTo(4);
+		assertThat(report.errors())
+				.extracting(RowError::line, RowError::message)
+				.containsExactlyInAnyOrder(
+						tuple(3L, "title must not be empty"),
+						tuple(4L, "Malformed row."),
+						tuple(5L, "Isbn already registered"),
+						tuple(7L, "Isbn already registered"));
+
+		assertThat(bookRepository.findIsbnsIn(List.of("001", "002", "003", "004")))
+				.containsExactlyInAnyOrder("001", "002", "004");
+		assertThat(bookSearchIndex.search("aventuras", null, null)).hasSize(2);
+	}
+
+	@Test
+	@DisplayName("Should report an isbn repeated in the same chunk")
+	void shouldReportIsbnRepeatedInChunk() {
+		// Arrange
+		String body = """
+				{"title":"As aventuras","author":"Arthur","isbn":"001"}
+				{"title":"Outra edicao","author":"Arthur","isbn":"001"}
+				""";
+
+		// Act
+		BookImportReport report = bookImportService.importBooks(new StringReader(body),
+				BookImportService.Format.NDJSON);
+
+		// Assert
+		assertThat(report.imported()).isEqualTo(1);
+		assertThat(report.errors())
+				.extracting(RowError::line, RowError::message)
+				.containsExactly(tuple(2L, "Isbn repeated in the import"));
+	}
+
+	@Test
+	@DisplayName("Should save a chunk refused by the database row by row and report only the offending row")
+	void shouldReportOnlyRowRefusedByDatabase() {
+		// Arrange
+		String body = """
+				{"title":"As aventuras","author":"Arthur","isbn":"001"}
+				{"title":"%s","author":"Fulano","isbn":"002"}
+				{"title":"Contos","author":"Ciclano","isbn":"003"}
+				""".formatted("A".repeat(300));
+
+		// Act
+		BookImportReport report = bookImportService.importBooks(new StringReader(body),
+				BookImportService.Format.NDJSON);
+
+		// Assert
+		assertThat(report.imported()).isEqualTo(2);
+		assertThat(report.errors())
+				.extracting(RowError::line, RowError::isbn, RowError::message)
+				.containsExactly(tuple(2L, "002", "Row refused by the database."));
+		assertThat(bookRepository.findIsbnsIn(List.of("001", "002", "003"))).containsExactlyInAnyOrder("001", "003");
+	}
+
+	@Test
+	@DisplayName("Should count every rejected row but list only the first ones")
+	void shouldListOnlyFirstRejectedRows() {
+		// Act
+		BookImportReport report = bookImportService.importBooks(new StringReader("{\n".repeat(7)),
+				BookImportService.Format.NDJSON);
+
+		// Assert
+		assertThat(report.rejected()).isEqualTo(7);
+		assertThat(report.errors()).extracting(RowError::line).containsExactly(1L, 2L, 3L, 4L, 5L);
+	}
+
+	@Test
+	@DisplayName("Should leave the persistence context of the request empty")
+	void shouldClearRequestPersistenceContext() {
+		// Arrange
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		// what open session in view does for each request
+		TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+		String body = """
+				{"title":"As aventuras","author":"Arthur","isbn":"001"}
+				{"title":"Memorias","author":"Fulano","isbn":"002"}
+				{"title":"Contos","author":"Ciclano","isbn":"003"}
+				""";
+
+		try {
+			// Act
+			BookImportReport report = bookImportService.importBooks(new StringReader(body),
+					BookImportService.Format.NDJSON);
+
+			// Assert
+			assertThat(report.imported()).isEqualTo(3);
+			assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+		} finally {
+			TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+			entityManager.close();
+		}
+	}
+
+	@Test
+	@DisplayName("Should import a CSV body by the columns named in its header")
+	void shouldImportCsvByHeaderColumns() {
+		// Arrange
+		String body = """
+				isbn,title,author
+				001,"Aventuras, volume ""1\""",Arthur
+				002,Memorias,Fulano
+				003,Contos,Ciclano
+				""";
+
+		// Act
+		BookImportReport report = bookImportService.importBooks(new StringReader(body),
+				BookImportService.Format.CSV);
+
+		// Assert
+		assertThat(report.imported()).isEqualTo(3);
+		assertThat(report.errors()).isEmpty();
+		assertThat(bookRepository.findByIsbn("001"))
+				.get()
+				.extracting(Book::getTitle)
+				.isEqualTo("Aventuras, volume \"1\"");
+	}
+
+	@Test
+	@DisplayName("Should refuse a CSV body without the expected header")
+	void shouldRefuseCsvWithoutHeader() {
+		// Act
+		Throwable exception = catchThrowable(() -> bookImportService
+				.importBooks(new StringReader("001,Memorias,Fulano\n"), BookImportService.Format.CSV));
+
+		// Assert
+		assertThat(exception).isInstanceOf(BusinessException.class);
+		assertThat(bookRepository.count()).isZero();
+	}
+}
@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -17,17 +19,23 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import br.com.elegacy.libraryapi.exception.BusinessException;
 import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.projection.BookView;
 import br.com.elegacy.libraryapi.model.repository.BookRepository;
 import br.com.elegacy.libraryapi.service.impl.BookServiceImpl;
+import br.com.elegacy.libraryapi.service.index.BookSearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -35,12 +43,19 @@ class BookServiceTest {
 
 	private BookService bookService;
 
+	private BookSearchIndex bookSearchIndex;
+
+	private SimpleMeterRegistry meterRegistry;
+
 	@MockBean
 	private BookRepository bookRepository;
 
 	@BeforeEach
 	public void setUp() {
-		this.bookService = new BookServiceImpl(bookRepository);
+		this.bookSearchIndex = new BookSearchIndex();
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.bookService = new BookServiceImpl(bookRepository, bookSearchIndex, new ConcurrentMapCacheManager(
+				BookServiceImpl.BOOKS_CACHE, BookServiceImpl.BOOKS_BY_ISBN_CACHE), meterRegistry);
 	}
 
 	@Test
@@ -48,7 +63,6 @@ class BookServiceTest {
 	void shouldSaveBook() {
 		// Arrange
 		Book book = createValidBook();
-		Mockito.when(bookRepository.existsByIsbn(Mockito.anyString())).thenReturn(false);
 
 		Book bookMock = Book
 				.builder()
@@ -58,7 +72,7 @@ class BookServiceTest {
 				.title("As aventuras")
 				.build();
 
-		Mockito.when(bookService.save(book)).thenReturn(bookMock);
+		Mockito.when(bookRepository.saveAndFlush(book)).thenReturn(bookMock);
 
 		// Act
 		Book savedBook = bookService.save(book);
@@ -75,7 +89,9 @@ class BookServiceTest {
 	void shouldNotSaveBookWithDuplicateIsbn() throws Exception {
 		// Arrange
 		Book book = createValidBook();
-		Mockito.when(bookRepository.existsByIsbn(Mockito.anyString())).thenReturn(true);
+		Mockito.when(bookRepository.saveAndFlush(book))
+				.thenThrow(new DataIntegrityViolationException("could not execute statement",
+						new SQLException("Unique index or primary key violation: \"PUBLIC.UK_BOOK_ISBN_INDEX_1\"")));
 
 		// Act
 		Throwable exception = Assertions.catchThrowable(() -> bookService.save(book));
@@ -85,7 +101,8 @@ class BookServiceTest {
 				.isInstanceOf(BusinessException.class)
 				.hasMessage("Isbn already registered");
 
-		Mockito.verify(bookRepository, Mockito.never()).save(book);
+		assertThat(bookSearchIndex.size()).isZero();
+		assertThat(meterRegistry.get("library.books.isbn.conflicts").counter().count()).isEqualTo(1);
 	}
 
 	@Test
@@ -160,7 +177,7 @@ class BookServiceTest {
 		Book updatedBook = createValidBook();
 		updatedBook.setId(id);
 
-		Mockito.when(bookRepository.save(updatingBook)).thenReturn(updatedBook);
+		Mockito.when(bookRepository.saveAndFlush(updatingBook)).thenReturn(updatedBook);
 
 		// Act
 		Book book = bookService.update(updatingBook);
@@ -182,7 +199,7 @@ class BookServiceTest {
 		assertThrows(IllegalArgumentException.class, () -> bookService.update(book));
 
 		// Assert
-		Mockito.verify(bookRepository, Mockito.never()).save(book);
+		Mockito.verify(bookRepository, Mockito.never()).saveAndFlush(book);
 	}
 
 	@Test
@@ -190,7 +207,33 @@ class BookServiceTest {
 	void shouldFindByFilter() {
 		// Arrange
 		Book book = createValidBook();
+		book.setId(1L);
+		bookSearchIndex.index(book);
+		bookSearchIndex.index(Book.builder().id(2L).isbn("456").author("Ciclano").title("Outro livro").build());
+
 		PageRequest pageRequest = PageRequest.of(0, 10);
+		List<BookView> books = List.of(new BookView(1L, "As aventuras", "Fulano", "123", 0L));
+
+		Mockito.when(bookRepository.findViewsByIdIn(List.of(1L))).thenReturn(books);
+
+		// Act
+		Page<BookView> result = bookService.find(Book.builder().title("AVENTURAS").build(), pageRequest);
+
+		// Assert
+		assertThat(result.getTotalElements()).isEqualTo(1);
+		assertThat(result.getContent()).isEqualTo(books);
+		assertThat(result.getPageable().getPageNumber()).isZero();
+		assertThat(result.getPageable().getPageSize()).isEqualTo(10);
+
+		verify(bookRepository, Mockito.never()).findAll(Mockito.<Example<Book>>any(), Mockito.any(PageRequest.class));
+	}
+
+	@Test
+	@DisplayName("Should find by example when the page is sorted")
+	void shouldFindByExampleWhenSorted() {
+		// Arrange
+		Book book = createValidBook();
+		PageRequest pageRequest = PageRequest.of(0, 10, Sort.by("title"));
 		List<Book> books = Arrays.asList(book);
 
 		Page<Book> page = new PageImpl<Book>(books, pageRequest, 1);
@@ -198,13 +241,76 @@ class BookServiceTest {
 				.thenReturn(page);
 
 		// Act
-		Page<Book> result = bookService.find(book, pageRequest);
+		Page<BookView> result = bookService.find(book, pageRequest);
 
 		// Assert
 		assertThat(result.getTotalElements()).isEqualTo(1);
-		assertThat(result.getContent()).isEqualTo(books);
-		assertThat(result.getPageable().getPageNumber()).isZero();
-		assertThat(result.getPageable().getPageSize()).isEqualTo(10);
+		assertThat(result.getContent()).containsExactly(new BookView(book.getId(), book.getTitle(), book.getAuthor(),
+				book.getIsbn(), book.getVersion()));
+	}
+
+	@Test
+	@DisplayName("Should page in the database, in id order, a search the index can't narrow down")
+	void shouldFindByExampleWhenNotSelective() {
+		// Arrange
+		Book book = createValidBook();
+		book.setId(1L);
+		bookSearchIndex.index(book);
+
+		Mockito.when(bookRepository.findAll(Mockito.<Example<Book>>any(), Mockito.any(PageRequest.class)))
+				.thenReturn(new PageImpl<>(List.of(book), PageRequest.of(1, 10, Sort.by("id")), 11));
+
+		// Act
+		Page<BookView> result = bookService.find(Book.builder().title("av").build(), PageRequest.of(1, 10));
+
+		// Assert
+		assertThat(result.getTotalElements()).isEqualTo(11);
+		assertThat(result.getContent()).containsExactly(new BookView(1L, book.getTitle(), book.getAuthor(),
+				book.getIsbn(), book.getVersion()));
+
+		verify(bookRepository).findAll(Mockito.<Example<Book>>any(), Mockito.eq(PageRequest.of(1, 10, Sort.by("id"))));
+		verify(bookRepository, Mockito.never()).findViewsByIdIn(Mockito.any());
+	}
+
+	@Test
+	@DisplayName("Should index the books changed on any node since the last refresh")
+	void shouldRefreshSearchIndexWithChangedBooks() {
+		// Arrange
+		bookSearchIndex.index(Book.builder().id(1L).version(0L).title("As aventuras").author("Fulano").build());
+
+		Mockito.when(bookRepository.findViewsByUpdatedAtAfter(Mockito.any(LocalDateTime.class)))
+				.thenReturn(List.of(new BookView(1L, "Memorias", "Fulano", "123", 1L),
+						new BookView(2L, "Outras aventuras", "Ciclano", "456", 0L)));
+
+		// Act
+		((BookServiceImpl) bookService).refreshSearchIndex();
+
+		// Assert
+		assertThat(bookSearchIndex.search("aventuras", null, null)).containsExactly(2L);
+		assertThat(bookSearchIndex.search("memorias", null, null)).containsExactly(1L);
+	}
+
+	@Test
+	@DisplayName("Should keep the search index in step with save, update and delete")
+	void shouldKeepSearchIndexUpdated() {
+		// Arrange
+		Book book = createValidBook();
+		Book savedBook = Book.builder().id(1L).isbn("123").author("Fulano").title("As aventuras").build();
+		Book updatedBook = Book.builder().id(1L).isbn("123").author("Fulano").title("Memorias").build();
+
+		Mockito.when(bookRepository.saveAndFlush(book)).thenReturn(savedBook);
+		Mockito.when(bookRepository.saveAndFlush(updatedBook)).thenReturn(updatedBook);
+
+		// Act & Assert
+		bookService.save(book);
+		assertThat(bookSearchIndex.search("aventuras", null, null)).containsExactly(1L);
+
+		bookService.update(updatedBook);
+		assertThat(bookSearchIndex.search("aventuras", null, null)).isEmpty();
+		assertThat(bookSearchIndex.search("memo", null, null)).containsExactly(1L);
+
+		bookService.delete(updatedBook);
+		assertThat(bookSearchIndex.search(null, null, null)).isEmpty();
 	}
 
 	@Test
@@ -230,6 +336,82 @@ class BookServiceTest {
 		verify(bookRepository, times(1)).findByIsbn(isbn);
 	}
 
+	@Test
+	@DisplayName("Should serve repeated lookups by id and isbn from the cache")
+	void shouldServeRepeatedLookupsFromCache() {
+		// Arrange
+		Book book = Book.builder().id(1L).isbn("123").author("Fulano").title("As aventuras").build();
+		Mockito.when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+
+		// Act
+		bookService.getById(1L);
+		Book cached = bookService.getById(1L).orElseThrow();
+		cached.setTitle("Changed by the caller");
+		Optional<Book> byIsbn = bookService.getBookByIsbn("123");
+
+		// Assert
+		assertThat(byIsbn).get().extracting(Book::getTitle).isEqualTo("As aventuras");
+		verify(bookRepository, times(1)).findById(1L);
+		verify(bookRepository, Mockito.never()).findByIsbn(Mockito.anyString());
+	}
+
+	@Test
+	@DisplayName("Should return a detached copy of the book read from the database")
+	void shouldReturnCopyOnCacheMiss() {
+		// Arrange
+		Book book = Book.builder().id(1L).isbn("123").author("Fulano").title("As aventuras").build();
+		Book other = Book.builder().id(2L).isbn("456").author("Fulano").title("Memorias").build();
+		Mockito.when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+		Mockito.when(bookRepository.findByIsbn("456")).thenReturn(Optional.of(other));
+
+		// Act
+		Book byId = bookService.getById(1L).orElseThrow();
+		Book byIsbn = bookService.getBookByIsbn("456").orElseThrow();
+
+		// Assert
+		assertThat(byId).isNotSameAs(book).usingRecursiveComparison().isEqualTo(book);
+		assertThat(byIsbn).isNotSameAs(other).usingRecursiveComparison().isEqualTo(other);
+	}
+
+	@Test
+	@DisplayName("Should stop finding a book by its old isbn once an update changes it")
+	void shouldEvictOldIsbnOnUpdate() {
+		// Arrange
+		Book book = Book.builder().id(1L).isbn("123").author("Fulano").title("As aventuras").build();
+		Book updatedBook = Book.builder().id(1L).isbn("456").author("Fulano").title("As aventuras").build();
+		Mockito.when(bookRepository.findByIsbn("123")).thenReturn(Optional.of(book), Optional.empty());
+		Mockito.when(bookRepository.saveAndFlush(updatedBook)).thenReturn(updatedBook);
+
+		bookService.getBookByIsbn("123");
+
+		// Act
+		bookService.update(updatedBook);
+
+		// Assert
+		assertThat(bookService.getBookByIsbn("123")).isEmpty();
+		assertThat(bookService.getBookByIsbn("456")).get().extracting(Book::getId).isEqualTo(1L);
+		assertThat(bookService.getById(1L)).get().extracting(Book::getIsbn).isEqualTo("456");
+		verify(bookRepository, times(2)).findByIsbn("123");
+		verify(bookRepository, Mockito.never()).findById(1L);
+	}
+
+	@Test
+	@DisplayName("Should read a deleted book from the database again")
+	void shouldEvictDeletedBook() {
+		// Arrange
+		Book book = Book.builder().id(1L).isbn("123").author("Fulano").title("As aventuras").build();
+		Mockito.when(bookRepository.findById(1L)).thenReturn(Optional.of(book), Optional.empty());
+		bookService.getById(1L);
+
+		// Act
+		bookService.delete(book);
+
+		// Assert
+		assertThat(bookService.getById(1L)).isEmpty();
+		assertThat(bookService.getBookByIsbn("123")).isEmpty();
+		verify(bookRepository, times(2)).findById(1L);
+	}
+
 	private Book createValidBook() {
 		Book book = Book
 				.builder()
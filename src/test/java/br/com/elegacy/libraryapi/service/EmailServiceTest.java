@@ -0,0 +1,153 @@
+package br.com.elegacy.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import br.com.elegacy.libraryapi.api.config.MailDispatchProperties;
+import br.com.elegacy.libraryapi.service.impl.EmailServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Message;
+import jakarta.mail.internet.MimeMessage;
+
+class EmailServiceTest {
+
+	private static final String REMETENT = "mail@library-api.com";
+
+	@RegisterExtension
+	static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+	private MailDispatchProperties properties;
+
+	private JavaMailSenderImpl javaMailSender;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	@BeforeEach
+	public void setUp() {
+		properties = new MailDispatchProperties();
+		properties.setMessagesPerSession(2);
+		properties.setConcurrency(2);
+		properties.setBackoff(Duration.ZERO);
+
+		meterRegistry = new SimpleMeterRegistry();
+
+		javaMailSender = new JavaMailSenderImpl();
+		javaMailSender.setHost("localhost");
+		javaMailSender.setPort(greenMail.getSmtp().getPort());
+	}
+
+	@Test
+	@DisplayName("Should send a personal message to each distinct recipient")
+	void shouldSendPersonalMessagePerDistinctRecipient() throws Exception {
+		// Arrange
+		EmailService emailService = createEmailService(javaMailSender);
+		List<String> mails = Arrays.asList("a@email.com", "b@email.com", "A@email.com", null, "c@email.com");
+
+		// Act
+		MailDispatchReport report = emailService.sendMails("Overdue", mails);
+
+		// Assert
+		MimeMessage[] received = greenMail.getReceivedMessages();
+		assertThat(received).hasSize(3);
+		for (MimeMessage message : received) {
+			assertThat(message.getRecipients(Message.RecipientType.TO)).hasSize(1);
+		}
+
+		assertThat(report.recipients()).isEqualTo(3);
+		assertThat(report.messages()).isEqualTo(3);
+		assertThat(report.sent()).isEqualTo(3);
+		assertThat(report.failedRecipients()).isEmpty();
+		assertThat(meterRegistry.get("library.mail.recipients").tag("outcome", "sent").counter().count()).isEqualTo(3);
+		assertThat(meterRegistry.get("library.mail.smtp").timer().count()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Should hide the recipients of a batched message in Bcc")
+	void shouldHideBatchedRecipientsInBcc() throws Exception {
+		// Arrange
+		properties.setRecipientsPerMessage(2);
+		EmailService emailService = createEmailService(javaMailSender);
+
+		// Act
+		MailDispatchReport report = emailService.sendMails("Overdue",
+				List.of("a@email.com", "b@email.com", "c@email.com"));
+
+		// Assert
+		assertThat(report.messages()).isEqualTo(2);
+		assertThat(report.sent()).isEqualTo(3);
+		// every Bcc recipient plus the remetent in To receives a copy
+		assertThat(greenMail.getReceivedMessages()).hasSize(5);
+		for (MimeMessage message : greenMail.getReceivedMessages()) {
+			assertThat(message.getHeader("To", ",")).isEqualTo(REMETENT);
+			assertThat(message.getHeader("Bcc")).isNull();
+		}
+	}
+
+	@Test
+	@DisplayName("Should retry only the messages the server rejected")
+	void shouldRetryRejectedMessages() {
+		// Arrange
+		JavaMailSender failingOnce = Mockito.mock(JavaMailSender.class);
+		Mockito.doAnswer(invocation -> {
+			SimpleMailMessage rejected = invocation.getArgument(0);
+			throw new MailSendException(Map.of(rejected, new Exception("rejected")));
+		}).doNothing().when(failingOnce).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+
+		properties.setMessagesPerSession(10);
+		EmailService emailService = createEmailService(failingOnce);
+
+		// Act
+		MailDispatchReport report = emailService.sendMails("Overdue", List.of("a@email.com", "b@email.com"));
+
+		// Assert
+		assertThat(report.sent()).isEqualTo(2);
+		assertThat(report.failedRecipients()).isEmpty();
+		Mockito.verify(failingOnce, Mockito.times(2)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+	}
+
+	@Test
+	@DisplayName("Should report the recipients that still fail after every attempt")
+	void shouldReportRecipientsFailingEveryAttempt() {
+		// Arrange
+		JavaMailSender failing = Mockito.mock(JavaMailSender.class);
+		Mockito.doThrow(new MailSendException("unavailable"))
+				.when(failing).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+
+		properties.setMaxAttempts(2);
+		EmailService emailService = createEmailService(failing);
+
+		// Act
+		MailDispatchReport report = emailService.sendMails("Overdue", List.of("a@email.com"));
+
+		// Assert
+		assertThat(report.sent()).isZero();
+		assertThat(report.failedRecipients()).containsExactly("a@email.com");
+		assertThat(meterRegistry.get("library.mail.recipients").tag("outcome", "failed").counter().count()).isEqualTo(1);
+		Mockito.verify(failing, Mockito.times(2)).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+	}
+
+	private EmailService createEmailService(JavaMailSender sender) {
+		EmailServiceImpl emailService = new EmailServiceImpl(sender, properties, false, meterRegistry);
+		ReflectionTestUtils.setField(emailService, "remetent", REMETENT);
+		return emailService;
+	}
+}
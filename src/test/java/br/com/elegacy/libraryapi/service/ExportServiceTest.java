@@ -0,0 +1,138 @@
+package br.com.elegacy.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalDateTime;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import br.com.elegacy.libraryapi.api.mapper.BookMapperImpl;
+import br.com.elegacy.libraryapi.api.mapper.LoanMapperImpl;
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
+import br.com.elegacy.libraryapi.service.impl.ExportServiceImpl;
+
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({ ExportServiceImpl.class, BookMapperImpl.class, LoanMapperImpl.class })
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class ExportServiceTest {
+
+	@Autowired
+	private ExportService exportService;
+
+	@Autowired
+	private TestEntityManager testEntityManager;
+
+	@Test
+	@DisplayName("Should write one JSON book per line in id order without loading entities")
+	void shouldExportBooksAsNdjson() {
+		// Arrange
+		Book first = persistBook("001", "As aventuras");
+		Book second = persistBook("002", "Memorias");
+		testEntityManager.clear();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		// Act
+		long rows = exportService.exportBooks(out, ExportService.Format.NDJSON);
+
+		// Assert
+		assertThat(rows).isEqualTo(2);
+		assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(String.format("""
+				{"id":%d,"title":"As aventuras","author":"Arthur","isbn":"001"}
+				{"id":%d,"title":"Memorias","author":"Arthur","isbn":"002"}
+				""", first.getId(), second.getId()));
+		assertThat(testEntityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount())
+				.isZero();
+	}
+
+	@Test
+	@DisplayName("Should write the loans with their book as CSV, quoting the values that need it")
+	void shouldExportLoansAsCsv() {
+		// Arrange
+		Book book = persistBook("001", "Aventuras, volume \"1\"");
+		Loan loan = testEntityManager.persist(Loan.builder()
+				.book(book)
+				.customer("Jhon")
+				.customerEmail("jhon@email.com")
+				.loanDate(LocalDate.now())
+				.build());
+		testEntityManager.flush();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		// Act
+		long rows = exportService.exportLoans(out, ExportService.Format.CSV);
+
+		// Assert
+		assertThat(rows).isEqualTo(1);
+		assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+				"id,customer,email,loanDate,status,returnedAt,isbn,title,author\r\n" + loan.getId()
+						+ ",Jhon,jhon@email.com," + loan.getLoanDate()
+						+ ",OPEN,,001,\"Aventuras, volume \"\"1\"\"\",Arthur\r\n");
+	}
+
+	@Test
+	@DisplayName("Should write only the CSV header when there is nothing to export")
+	void shouldExportOnlyHeaderWhenEmpty() {
+		// Arrange
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		// Act
+		long rows = exportService.exportBooks(out, ExportService.Format.CSV);
+
+		// Assert
+		assertThat(rows).isZero();
+		assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("id,title,author,isbn\r\n");
+	}
+
+	@Test
+	@DisplayName("Should write the loans as NDJSON with their date, status and return time")
+	void shouldExportLoansAsNdjson() {
+		// Arrange
+		Book book = persistBook("001", "As aventuras");
+		Loan loan = testEntityManager.persist(Loan.builder()
+				.book(book)
+				.customer("Jhon")
+				.customerEmail("jhon@email.com")
+				.loanDate(LocalDate.of(2023, 1, 10))
+				.status(LoanStatus.RETURNED)
+				.returnedAt(LocalDateTime.of(2023, 1, 12, 9, 30))
+				.build());
+		testEntityManager.flush();
+		testEntityManager.clear();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		// Act
+		long rows = exportService.exportLoans(out, ExportService.Format.NDJSON);
+
+		// Assert
+		assertThat(rows).isEqualTo(1);
+		assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(String.format("""
+				{"id":%d,"isbn":"001","customer":"Jhon","email":"jhon@email.com","loanDate":"2023-01-10",\
+				"status":"RETURNED","returnedAt":"2023-01-12T09:30:00","book":{"id":%d,"title":"As aventuras",\
+				"author":"Arthur","isbn":"001"}}
+				""", loan.getId(), book.getId()));
+	}
+
+	private Book persistBook(String isbn, String title) {
+		return testEntityManager.persistFlushFind(Book.builder().title(title).author("Arthur").isbn(isbn).build());
+	}
+}
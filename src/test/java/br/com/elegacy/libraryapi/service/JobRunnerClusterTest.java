@@ -0,0 +1,154 @@
+package br.com.elegacy.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import br.com.elegacy.libraryapi.LibraryApiApplication;
+import br.com.elegacy.libraryapi.model.repository.JobLeaseRepository;
+
+/**
+ * Starts two nodes of the application on the same database and checks that
+ * they share the shards of a job instead of running it twice.
+ */
+class JobRunnerClusterTest {
+
+	private static final String JOB = "cluster-test";
+
+	private static final int SHARDS = 4;
+
+	private static final long ITEMS = 40;
+
+	private static final int CHUNK = 3;
+
+	private static ConfigurableApplicationContext nodeA;
+
+	private static ConfigurableApplicationContext nodeB;
+
+	private final List<String> processed = Collections.synchronizedList(new ArrayList<>());
+
+	@BeforeAll
+	public static void startNodes() {
+		nodeA = startNode("node-a");
+		nodeB = startNode("node-b");
+	}
+
+	@AfterAll
+	public static void stopNodes() {
+		nodeA.close();
+		nodeB.close();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		nodeA.getBean(JobLeaseRepository.class).deleteAll();
+	}
+
+	@Test
+	@DisplayName("Should process every shard once when two nodes run the job together")
+	void shouldProcessEveryShardOnceAcrossNodes() throws Exception {
+		// Arrange
+		CountDownLatch start = new CountDownLatch(1);
+		CompletableFuture<Integer> runA = CompletableFuture.supplyAsync(() -> run(nodeA, start, "a"));
+		CompletableFuture<Integer> runB = CompletableFuture.supplyAsync(() -> run(nodeB, start, "b"));
+
+		// Act
+		start.countDown();
+		int completed = runA.get() + runB.get();
+
+		// Assert
+		assertThat(completed).isEqualTo(SHARDS);
+		assertThat(processed).hasSize((int) ITEMS);
+		assertThat(processed.stream().map(item -> item.substring(2)).distinct()).hasSize((int) ITEMS);
+
+		assertThat(runJob(nodeA, "a")).isZero();
+		assertThat(runJob(nodeB, "b")).isZero();
+		assertThat(processed).hasSize((int) ITEMS);
+	}
+
+	@Test
+	@DisplayName("Should resume an interrupted run on another node from its checkpoint")
+	void shouldResumeInterruptedRunFromCheckpoint() {
+		// Arrange
+		AtomicInteger chunks = new AtomicInteger();
+		JobRunner.ShardTask failingTask = (shard, checkpoint) -> {
+			if (chunks.incrementAndGet() > 1) {
+				throw new IllegalStateException("node stopped");
+			}
+			return processChunk("a", shard, checkpoint, 1);
+		};
+		Throwable exception = catchThrowable(
+				() -> nodeA.getBean(JobRunner.class).run(JOB, LocalDate.now(), 1, failingTask));
+
+		// Act
+		int completed = runJob(nodeB, "b", 1);
+
+		// Assert
+		assertThat(exception).isInstanceOf(IllegalStateException.class);
+		assertThat(completed).isEqualTo(1);
+		assertThat(processed).hasSize((int) ITEMS);
+		assertThat(processed).filteredOn(item -> item.startsWith("a")).hasSize(CHUNK);
+		assertThat(processed.stream().map(item -> item.substring(2)).distinct()).hasSize((int) ITEMS);
+	}
+
+	private int run(ConfigurableApplicationContext node, CountDownLatch start, String name) {
+		try {
+			start.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return runJob(node, name);
+	}
+
+	private int runJob(ConfigurableApplicationContext node, String name) {
+		return runJob(node, name, SHARDS);
+	}
+
+	private int runJob(ConfigurableApplicationContext node, String name, int shards) {
+		return node.getBean(JobRunner.class).run(JOB, LocalDate.now(), shards,
+				(shard, checkpoint) -> processChunk(name, shard, checkpoint, shards));
+	}
+
+	/**
+	 * Records the next ids of the shard after the checkpoint, as "node:id".
+	 */
+	private Long processChunk(String name, int shard, Long checkpoint, int shards) {
+		List<Long> chunk = LongStream.rangeClosed(checkpoint + 1, ITEMS)
+				.filter(id -> id % shards == shard)
+				.limit(CHUNK)
+				.boxed()
+				.toList();
+
+		chunk.forEach(id -> processed.add(name + ":" + id));
+		return chunk.isEmpty() ? null : chunk.get(chunk.size() - 1);
+	}
+
+	private static ConfigurableApplicationContext startNode(String node) {
+		return new SpringApplicationBuilder(LibraryApiApplication.class)
+				.web(WebApplicationType.NONE)
+				.profiles("test")
+				.properties("spring.datasource.url=jdbc:h2:mem:job-cluster;DB_CLOSE_DELAY=-1",
+						"spring.jmx.enabled=false",
+						"application.jobs.node-id=" + node,
+						"application.jobs.late-loans.cron=-",
+						"application.outbox.delay=3600000")
+				.run();
+	}
+}
@@ -0,0 +1,86 @@
+package br.com.elegacy.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import br.com.elegacy.libraryapi.exception.BusinessException;
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.repository.BookRepository;
+import br.com.elegacy.libraryapi.model.repository.LoanRepository;
+
+@ActiveProfiles("test")
+@SpringBootTest
+class LoanServiceConcurrencyTest {
+
+	private static final int THREADS = 16;
+
+	@Autowired
+	private LoanService loanService;
+
+	@Autowired
+	private LoanRepository loanRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@AfterEach
+	public void tearDown() {
+		loanRepository.deleteAll();
+		bookRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("Should lend a book only once when many customers take it out at the same time")
+	void shouldLendBookOnlyOnceUnderContention() throws Exception {
+		// Arrange
+		Book book = bookRepository.save(Book.builder().title("As aventuras").author("Arthur").isbn("123").build());
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Boolean>> attempts = new ArrayList<>();
+
+		for (int i = 0; i < THREADS; i++) {
+			String customer = "Customer " + i;
+			attempts.add(executor.submit(() -> {
+				start.await();
+				try {
+					loanService.save(Loan.builder().book(book).customer(customer).loanDate(LocalDate.now()).build());
+					return true;
+				} catch (BusinessException e) {
+					return false;
+				}
+			}));
+		}
+
+		// Act
+		start.countDown();
+
+		int lent = 0;
+		for (Future<Boolean> attempt : attempts) {
+			if (attempt.get(30, TimeUnit.SECONDS)) {
+				lent++;
+			}
+		}
+		executor.shutdown();
+
+		// Assert
+		assertThat(lent).isEqualTo(1);
+		assertThat(loanRepository.countByBook(book)).isEqualTo(1);
+	}
+}
@@ -5,7 +5,9 @@ import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -16,18 +18,28 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import br.com.elegacy.libraryapi.api.dto.LoanCursor;
 import br.com.elegacy.libraryapi.api.dto.LoanFilterDTO;
 import br.com.elegacy.libraryapi.exception.BusinessException;
 import br.com.elegacy.libraryapi.model.entity.Book;
 import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
+import br.com.elegacy.libraryapi.model.projection.BookView;
+import br.com.elegacy.libraryapi.model.projection.ChangedLoan;
+import br.com.elegacy.libraryapi.model.projection.LoanView;
+import br.com.elegacy.libraryapi.model.projection.OpenLoan;
 import br.com.elegacy.libraryapi.model.repository.LoanRepository;
 import br.com.elegacy.libraryapi.service.impl.LoanServiceImpl;
+import br.com.elegacy.libraryapi.service.index.OverdueLoanIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -35,12 +47,21 @@ class LoanServiceTest {
 
 	private LoanService loanService;
 
+	private OverdueLoanIndex overdueLoanIndex;
+
+	private SimpleMeterRegistry meterRegistry;
+
 	@MockBean
 	private LoanRepository loanRepository;
 
+	@MockBean
+	private NotificationService notificationService;
+
 	@BeforeEach
 	public void setUp() {
-		this.loanService = new LoanServiceImpl(loanRepository);
+		this.overdueLoanIndex = new OverdueLoanIndex();
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.loanService = new LoanServiceImpl(loanRepository, notificationService, overdueLoanIndex, meterRegistry);
 	}
 
 	@Test
@@ -66,8 +87,7 @@ class LoanServiceTest {
 				.loanDate(LocalDate.now())
 				.build();
 
-		Mockito.when(loanRepository.existsByBookAndNotReturned(book)).thenReturn(false);
-		Mockito.when(loanRepository.save(savingLoan)).thenReturn(savedLoan);
+		Mockito.when(loanRepository.saveAndFlush(savingLoan)).thenReturn(savedLoan);
 
 		// Act
 		Loan loan = loanService.save(savingLoan);
@@ -77,6 +97,8 @@ class LoanServiceTest {
 		assertThat(loan.getBook().getId()).isEqualTo(savedLoan.getBook().getId());
 		assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
 		assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
+
+		verify(notificationService).loanCreated(savedLoan);
 	}
 
 	@Test
@@ -95,7 +117,9 @@ class LoanServiceTest {
 				.loanDate(LocalDate.now())
 				.build();
 
-		Mockito.when(loanRepository.existsByBookAndNotReturned(book)).thenReturn(true);
+		Mockito.when(loanRepository.saveAndFlush(savingLoan))
+				.thenThrow(new DataIntegrityViolationException("could not execute statement",
+						new SQLException("Unique index or primary key violation: \"PUBLIC.UK_LOAN_OPEN_BOOK_INDEX_2\"")));
 
 		// Act
 		Throwable exception = catchThrowable(() -> loanService.save(savingLoan));
@@ -105,8 +129,9 @@ class LoanServiceTest {
 				.isInstanceOf(BusinessException.class)
 				.hasMessage("Book already loaned.");
 
-		verify(loanRepository, never()).save(savingLoan);
-
+		verify(notificationService, never()).loanCreated(Mockito.any(Loan.class));
+		assertThat(meterRegistry.get("library.loans.rejected").tag("reason", "already-loaned").counter().count())
+				.isEqualTo(1);
 	}
 
 	@Test
@@ -141,16 +166,36 @@ class LoanServiceTest {
 
 		Loan loan = createLoan();
 		loan.setId(id);
-		loan.setReturned(true);
+		loan.setStatus(LoanStatus.RETURNED);
 
-		Mockito.when(loanRepository.save(loan)).thenReturn(loan);
+		Mockito.when(loanRepository.findStatusById(id)).thenReturn(Optional.of(LoanStatus.OPEN));
+		Mockito.when(loanRepository.saveAndFlush(loan)).thenReturn(loan);
 
 		// Act
 		Loan updatedLoan = loanService.update(loan);
 
 		// Assert
-		assertThat(updatedLoan.getReturned()).isTrue();
-		verify(loanRepository).save(loan);
+		assertThat(updatedLoan.getStatus()).isEqualTo(LoanStatus.RETURNED);
+		verify(loanRepository).saveAndFlush(loan);
+		verify(notificationService).loanReturned(loan);
+	}
+
+	@Test
+	@DisplayName("Should not notify again the return of a loan already returned")
+	void shouldNotNotifyReturnOfReturnedLoan() {
+		// Arrange
+		Loan loan = createLoan();
+		loan.setId(1L);
+		loan.setStatus(LoanStatus.RETURNED);
+
+		Mockito.when(loanRepository.findStatusById(1L)).thenReturn(Optional.of(LoanStatus.RETURNED));
+		Mockito.when(loanRepository.saveAndFlush(loan)).thenReturn(loan);
+
+		// Act
+		loanService.update(loan);
+
+		// Assert
+		verify(notificationService, never()).loanReturned(Mockito.any(Loan.class));
 	}
 
 	@Test
@@ -159,13 +204,10 @@ class LoanServiceTest {
 		// Arrange
 		LoanFilterDTO loanFilterDTO = LoanFilterDTO.builder().customer("Jhon").isbn("321").build();
 
-		Loan loan = createLoan();
-		loan.setId(1L);
-
 		PageRequest pageRequest = PageRequest.of(0, 10);
-		List<Loan> loans = Arrays.asList(loan);
+		List<LoanView> loans = List.of(createLoanView(1L));
 
-		Page<Loan> page = new PageImpl<Loan>(loans, pageRequest, loans.size());
+		Page<LoanView> page = new PageImpl<>(loans, pageRequest, loans.size());
 		Mockito.when(loanRepository.findByBookIsbnOrCustomer(
 				Mockito.anyString(),
 				Mockito.anyString(),
@@ -173,7 +215,7 @@ class LoanServiceTest {
 				.thenReturn(page);
 
 		// Act
-		Page<Loan> result = loanService.find(loanFilterDTO, pageRequest);
+		Page<LoanView> result = loanService.find(loanFilterDTO, pageRequest);
 
 		// Assert
 		assertThat(result.getTotalElements()).isEqualTo(1);
@@ -182,6 +224,35 @@ class LoanServiceTest {
 		assertThat(result.getPageable().getPageSize()).isEqualTo(10);
 	}
 
+	@Test
+	@DisplayName("Should scroll loans without counting")
+	void shouldScrollLoansWithoutCounting() {
+		// Arrange
+		LoanFilterDTO loanFilterDTO = LoanFilterDTO.builder().customer("Jhon").build();
+
+		LoanView first = createLoanView(1L);
+		LoanView second = createLoanView(2L);
+		LoanView third = createLoanView(3L);
+
+		LoanCursor after = new LoanCursor(LocalDate.now(), 10L);
+		Mockito.when(loanRepository.scrollByBookIsbnOrCustomerAfter(null, "Jhon", after.getLoanDate(), 10L,
+				PageRequest.ofSize(3)))
+				.thenReturn(List.of(first, second, third));
+
+		// Act
+		Slice<LoanView> result = loanService.scroll(loanFilterDTO, after, 2);
+
+		// Assert
+		assertThat(result.getContent()).containsExactly(first, second);
+		assertThat(result.hasNext()).isTrue();
+		verify(loanRepository, never()).countByBookIsbnOrCustomer(Mockito.any(), Mockito.any());
+	}
+
+	private LoanView createLoanView(Long id) {
+		return new LoanView(id, "Jhon", "jhon@email.com", LocalDate.now(), LoanStatus.OPEN, null, 0L,
+				new BookView(1L, "As aventuras", "Arthur", "321", 0L));
+	}
+
 	private Loan createLoan() {
 		Book book = Book.builder()
 				.id(1L)
@@ -197,4 +268,70 @@ class LoanServiceTest {
 
 		return savingLoan;
 	}
+
+	@Test
+	@DisplayName("Should answer the overdue loans from the loans saved and returned")
+	void shouldAnswerOverdueLoansFromSavedLoans() {
+		// Arrange
+		LocalDate today = LocalDate.now();
+		Loan overdue = Loan.builder().id(1L).customer("Jhon").loanDate(today.minusDays(4)).build();
+		Loan longOverdue = Loan.builder().id(2L).customer("Mary").loanDate(today.minusDays(9)).build();
+		Loan onTime = Loan.builder().id(3L).customer("Peter").loanDate(today.minusDays(3)).build();
+		Loan returned = Loan.builder().id(4L).customer("Ana").loanDate(today.minusDays(4)).build();
+
+		Mockito.when(loanRepository.saveAndFlush(Mockito.any(Loan.class)))
+				.thenAnswer(invocation -> invocation.getArgument(0));
+
+		Arrays.asList(overdue, longOverdue, onTime, returned).forEach(loanService::save);
+		returned.setStatus(LoanStatus.RETURNED);
+
+		// Act
+		loanService.update(returned);
+		OverdueLoans overdueLoans = loanService.getOverdueLoans(today);
+
+		// Assert
+		assertThat(overdueLoans.date()).isEqualTo(today);
+		assertThat(overdueLoans.overdue()).isEqualTo(2);
+		assertThat(overdueLoans.becameOverdue()).containsExactly(1L);
+	}
+
+	@Test
+	@DisplayName("Should rebuild the overdue loan index from the open loans")
+	void shouldRebuildOverdueLoanIndex() {
+		// Arrange
+		overdueLoanIndex.replace(OverdueLoanIndex.builder().add(99L, 0L, LocalDate.now()));
+		Mockito.when(loanRepository.findOpenLoansAfter(Mockito.eq(0L), Mockito.any()))
+				.thenReturn(List.of(new OpenLoan(1L, 0L, LocalDate.now().minusDays(5)),
+						new OpenLoan(2L, 0L, LocalDate.now())));
+
+		// Act
+		((LoanServiceImpl) loanService).rebuildOverdueLoanIndex();
+
+		// Assert
+		assertThat(overdueLoanIndex.size()).isEqualTo(2);
+		assertThat(loanService.getOverdueLoans(LocalDate.now()).overdue()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Should refresh the overdue loan index with the loans changed on any node")
+	void shouldRefreshOverdueLoanIndex() {
+		// Arrange
+		LocalDate today = LocalDate.now();
+		overdueLoanIndex.index(1L, 0L, today.minusDays(5));
+		overdueLoanIndex.index(2L, 0L, today);
+		Mockito.when(loanRepository.findChangedLoansByUpdatedAtAfter(Mockito.any(LocalDateTime.class)))
+				.thenReturn(List.of(new ChangedLoan(1L, 1L, today.minusDays(5), LoanStatus.RETURNED),
+						new ChangedLoan(3L, 0L, today.minusDays(4), LoanStatus.OPEN)));
+
+		// Act
+		((LoanServiceImpl) loanService).refreshOverdueLoanIndex();
+		OverdueLoans overdueLoans = loanService.getOverdueLoans(today);
+
+		// Assert
+		assertThat(overdueLoanIndex.size()).isEqualTo(2);
+		assertThat(overdueLoans.overdue()).isEqualTo(1);
+		assertThat(overdueLoans.becameOverdue()).containsExactly(3L);
+		verify(loanRepository, never()).findOpenLoansAfter(Mockito.any(), Mockito.any());
+	}
+
 }
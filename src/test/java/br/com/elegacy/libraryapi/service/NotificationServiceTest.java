@@ -0,0 +1,196 @@
+package br.com.elegacy.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.elegacy.libraryapi.exception.BusinessException;
+import br.com.elegacy.libraryapi.model.entity.Book;
+import br.com.elegacy.libraryapi.model.entity.Loan;
+import br.com.elegacy.libraryapi.model.entity.LoanStatus;
+import br.com.elegacy.libraryapi.model.entity.Notification;
+import br.com.elegacy.libraryapi.model.repository.BookRepository;
+import br.com.elegacy.libraryapi.model.repository.LoanRepository;
+import br.com.elegacy.libraryapi.model.repository.NotificationRepository;
+import br.com.elegacy.libraryapi.service.impl.LoanServiceImpl;
+import br.com.elegacy.libraryapi.service.impl.NotificationServiceImpl;
+import br.com.elegacy.libraryapi.service.index.OverdueLoanIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({ LoanServiceImpl.class, NotificationServiceImpl.class, OverdueLoanIndex.class, SimpleMeterRegistry.class })
+class NotificationServiceTest {
+
+	@Autowired
+	private LoanService loanService;
+
+	@Autowired
+	private NotificationService notificationService;
+
+	@Autowired
+	private NotificationRepository notificationRepository;
+
+	@Autowired
+	private LoanRepository loanRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private TestEntityManager testEntityManager;
+
+	@MockBean
+	private EmailService emailService;
+
+	@Test
+	@DisplayName("Should write the notification of a new loan in the outbox")
+	void shouldWriteLoanCreatedNotification() {
+		// Arrange
+		Book book = persistBook();
+
+		// Act
+		loanService.save(createLoan(book, "jhon@email.com"));
+
+		// Assert
+		assertThat(notificationRepository.findAll())
+				.singleElement()
+				.satisfies(notification -> {
+					assertThat(notification.getRecipient()).isEqualTo("jhon@email.com");
+					assertThat(notification.getMessage()).contains("As aventuras");
+					assertThat(notification.getSentAt()).isNull();
+				});
+		Mockito.verifyNoInteractions(emailService);
+	}
+
+	@Test
+	@DisplayName("Should not write a notification when the loan is rejected")
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void shouldNotWriteNotificationOfRejectedLoan() {
+		// the rejected insert rolls back its own transaction, so each save must commit on its own
+		Book book = bookRepository.save(Book.builder().title("As aventuras").author("Arthur").isbn("123").build());
+		try {
+			// Arrange
+			loanService.save(createLoan(book, "jhon@email.com"));
+
+			// Act
+			Throwable exception = catchThrowable(() -> loanService.save(createLoan(book, "mary@email.com")));
+
+			// Assert
+			assertThat(exception).isInstanceOf(BusinessException.class);
+			assertThat(notificationRepository.findAll())
+					.extracting(Notification::getRecipient)
+					.containsExactly("jhon@email.com");
+		} finally {
+			notificationRepository.deleteAll();
+			loanRepository.deleteAll();
+			bookRepository.deleteAll();
+		}
+	}
+
+	@Test
+	@DisplayName("Should mark delivered notifications as sent and count an attempt on the failed ones")
+	void shouldDispatchPendingNotifications() {
+		// Arrange
+		persistNotification("jhon@email.com");
+		persistNotification("mary@email.com");
+
+		Mockito.when(emailService.sendMails(Mockito.anyString(), Mockito.anyString(), Mockito.anyList()))
+				.thenReturn(new MailDispatchReport(2, 2, 1, List.of("mary@email.com"), Duration.ZERO));
+
+		// Act
+		int sent = notificationService.dispatchPending();
+
+		// Assert
+		assertThat(sent).isEqualTo(1);
+		Mockito.verify(emailService).sendMails("Loan registered.", "Message",
+				List.of("jhon@email.com", "mary@email.com"));
+
+		assertThat(notificationRepository.findAll())
+				.allSatisfy(notification -> assertThat(notification.getAttempts()).isEqualTo(1))
+				.filteredOn(notification -> notification.getSentAt() == null)
+				.extracting(Notification::getRecipient)
+				.containsExactly("mary@email.com");
+	}
+
+	@Test
+	@DisplayName("Should write the notification of a return only when the loan was open")
+	void shouldWriteLoanReturnedNotificationOnce() {
+		// Arrange
+		Long id = loanService.save(createLoan(persistBook(), "jhon@email.com")).getId();
+
+		// Act
+		for (int i = 0; i < 2; i++) {
+			Loan loan = loanService.getById(id).orElseThrow();
+			loan.setStatus(LoanStatus.RETURNED);
+			loan.setReturnedAt(LocalDateTime.now());
+			loanService.update(loan);
+		}
+
+		// Assert
+		assertThat(notificationRepository.findAll())
+				.extracting(Notification::getSubject)
+				.containsExactly("Loan registered.", "Loan returned.");
+	}
+
+	@Test
+	@DisplayName("Should not send the notifications claimed by another dispatch")
+	void shouldSkipNotificationsClaimedElsewhere() {
+		// Arrange
+		Notification claimed = persistNotification("jhon@email.com");
+		claimed.setClaimedBy("other-node");
+		claimed.setClaimedUntil(LocalDateTime.now().plusMinutes(5));
+		persistNotification("mary@email.com");
+
+		Mockito.when(emailService.sendMails(Mockito.anyString(), Mockito.anyString(), Mockito.anyList()))
+				.thenReturn(new MailDispatchReport(1, 1, 1, List.of(), Duration.ZERO));
+
+		// Act
+		int sent = notificationService.dispatchPending();
+
+		// Assert
+		assertThat(sent).isEqualTo(1);
+		Mockito.verify(emailService).sendMails("Loan registered.", "Message", List.of("mary@email.com"));
+		assertThat(notificationRepository.findAll())
+				.filteredOn(notification -> notification.getSentAt() == null)
+				.extracting(Notification::getRecipient)
+				.containsExactly("jhon@email.com");
+	}
+
+	private Book persistBook() {
+		return testEntityManager.persist(Book.builder().title("As aventuras").author("Arthur").isbn("123").build());
+	}
+
+	private Loan createLoan(Book book, String email) {
+		return Loan.builder()
+				.book(book)
+				.customer("Jhon")
+				.customerEmail(email)
+				.loanDate(LocalDate.now())
+				.build();
+	}
+
+	private Notification persistNotification(String recipient) {
+		return testEntityManager.persist(Notification.builder()
+				.recipient(recipient)
+				.subject("Loan registered.")
+				.message("Message")
+				.build());
+	}
+}
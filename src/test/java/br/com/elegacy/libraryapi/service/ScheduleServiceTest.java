@@ -0,0 +1,112 @@
+package br.com.elegacy.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import br.com.elegacy.libraryapi.model.projection.LateLoan;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+class ScheduleServiceTest {
+
+	private static final String MESSAGE = "Overdue";
+
+	private ScheduleService scheduleService;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	@MockBean
+	private LoanService loanService;
+
+	@MockBean
+	private EmailService emailService;
+
+	@MockBean
+	private NotificationService notificationService;
+
+	@BeforeEach
+	public void setUp() {
+		// runs the single shard of the job from the start, as a node leasing it for a new day would
+		JobRunner jobRunner = (job, runDate, shards, task) -> {
+			Long lastId = 0L;
+			while (lastId != null) {
+				lastId = task.process(0, lastId);
+			}
+			return 1;
+		};
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.scheduleService = new ScheduleService(loanService, emailService, notificationService, jobRunner,
+				meterRegistry);
+		ReflectionTestUtils.setField(scheduleService, "message", MESSAGE);
+		ReflectionTestUtils.setField(scheduleService, "batchSize", 2);
+		ReflectionTestUtils.setField(scheduleService, "shards", 1);
+	}
+
+	@Test
+	@DisplayName("Should send the late loans mails chunk by chunk")
+	void shouldSendLateLoansMailsInChunks() {
+		// Arrange
+		Mockito.when(loanService.getLateLoans(0, 1, 0L, 2))
+				.thenReturn(List.of(new LateLoan(1L, "a@email.com"), new LateLoan(2L, "b@email.com")));
+		Mockito.when(loanService.getLateLoans(0, 1, 2L, 2))
+				.thenReturn(List.of(new LateLoan(3L, "c@email.com")));
+		Mockito.when(loanService.getLateLoans(0, 1, 3L, 2)).thenReturn(List.of());
+
+		// Act
+		scheduleService.sendMailToLateLoans();
+
+		// Assert
+		verify(emailService).sendMails(MESSAGE, List.of("a@email.com", "b@email.com"));
+		verify(emailService).sendMails(MESSAGE, List.of("c@email.com"));
+		verify(emailService, Mockito.times(2)).sendMails(Mockito.anyString(), Mockito.anyList());
+
+		DistributionSummary overdue = meterRegistry.get("library.jobs.late-loans.overdue").summary();
+		assertThat(overdue.count()).isEqualTo(1);
+		assertThat(overdue.totalAmount()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("Should not send mails when there are no late loans")
+	void shouldNotSendMailsWithoutLateLoans() {
+		// Arrange
+		Mockito.when(loanService.getLateLoans(0, 1, 0L, 2)).thenReturn(List.of());
+
+		// Act
+		scheduleService.sendMailToLateLoans();
+
+		// Assert
+		verify(emailService, never()).sendMails(Mockito.anyString(), Mockito.anyList());
+	}
+
+	@Test
+	@DisplayName("Should not record the overdue loans when no shard was left to process")
+	void shouldNotRecordOverdueWithoutProcessedShard() {
+		// Arrange
+		JobRunner completedJobRunner = (job, runDate, shards, task) -> 0;
+		ScheduleService completedScheduleService = new ScheduleService(loanService, emailService,
+				notificationService, completedJobRunner, meterRegistry);
+
+		// Act
+		completedScheduleService.sendMailToLateLoans();
+
+		// Assert
+		verify(loanService, never()).getLateLoans(Mockito.anyInt(), Mockito.anyInt(), Mockito.any(),
+				Mockito.anyInt());
+		assertThat(meterRegistry.find("library.jobs.late-loans.overdue").summary()).isNull();
+	}
+}
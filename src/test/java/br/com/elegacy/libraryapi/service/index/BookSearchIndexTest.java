@@ -0,0 +1,132 @@
+package br.com.elegacy.libraryapi.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.com.elegacy.libraryapi.model.entity.Book;
+
+class BookSearchIndexTest {
+
+	private BookSearchIndex bookSearchIndex;
+
+	@BeforeEach
+	public void setUp() {
+		bookSearchIndex = new BookSearchIndex();
+		bookSearchIndex.index(Book.builder().id(1L).title("As aventuras").author("Arthur").isbn("001").build());
+		bookSearchIndex.index(Book.builder().id(2L).title("Aventuras na selva").author("Fulano").isbn("002").build());
+		bookSearchIndex.index(Book.builder().id(3L).title("Memorias").author("Arthur").isbn("103").build());
+	}
+
+	@Test
+	@DisplayName("Should find books containing the term ignoring case")
+	void shouldFindByContainingTermIgnoringCase() {
+		assertThat(bookSearchIndex.search("AVENTURA", null, null)).containsExactly(1L, 2L);
+	}
+
+	@Test
+	@DisplayName("Should intersect the informed fields")
+	void shouldIntersectFields() {
+		assertThat(bookSearchIndex.search("aventuras", "arthur", null)).containsExactly(1L);
+	}
+
+	@Test
+	@DisplayName("Should find by terms shorter than a trigram")
+	void shouldFindByShortTerms() {
+		assertThat(bookSearchIndex.search(null, null, "0")).containsExactly(1L, 2L, 3L);
+		assertThat(bookSearchIndex.search(null, null, "10")).containsExactly(3L);
+	}
+
+	@Test
+	@DisplayName("Should return every book when there is no filter")
+	void shouldReturnEveryBookWithoutFilter() {
+		assertThat(bookSearchIndex.search(null, null, null)).containsExactly(1L, 2L, 3L);
+	}
+
+	@Test
+	@DisplayName("Should stop finding a removed book")
+	void shouldNotFindRemovedBook() {
+		bookSearchIndex.remove(1L);
+
+		assertThat(bookSearchIndex.search("aventuras", null, null)).containsExactly(2L);
+		assertThat(bookSearchIndex.size()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Should tell whether a search can be narrowed down by a trigram")
+	void shouldTellWhetherSearchIsSelective() {
+		assertThat(BookSearchIndex.isSelective(null, null, null)).isFalse();
+		assertThat(BookSearchIndex.isSelective("as", null, "10")).isFalse();
+		assertThat(BookSearchIndex.isSelective(null, "art", null)).isTrue();
+	}
+
+	@Test
+	@DisplayName("Should keep the changes newer than a rebuilt base on top of it")
+	void shouldKeepNewerChangesOverRebuiltBase() {
+		// Arrange
+		bookSearchIndex.index(1L, 2L, "Memorias postumas", "Arthur", "001");
+		bookSearchIndex.remove(3L);
+
+		// Act
+		bookSearchIndex.replace(BookSearchIndex.builder()
+				.add(1L, 1L, "As aventuras", "Arthur", "001")
+				.add(2L, 0L, "Aventuras na selva", "Fulano", "002")
+				.add(3L, 0L, "Memorias", "Arthur", "103")
+				.add(4L, 0L, "Aventuras no mar", "Ciclano", "004"));
+
+		// Assert
+		assertThat(bookSearchIndex.search("aventuras", null, null)).containsExactly(2L, 4L);
+		assertThat(bookSearchIndex.search("memorias", null, null)).containsExactly(1L);
+		assertThat(bookSearchIndex.size()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("Should drop the changes a rebuilt base already holds")
+	void shouldDropChangesHeldByRebuiltBase() {
+		// Arrange
+		bookSearchIndex.clear();
+		bookSearchIndex.index(1L, 1L, "Memorias postumas", "Arthur", "001");
+
+		// Act
+		bookSearchIndex.replace(BookSearchIndex.builder()
+				.add(1L, 2L, "Dom Casmurro", "Machado", "001"));
+
+		// Assert
+		assertThat(bookSearchIndex.pendingChanges()).isZero();
+		assertThat(bookSearchIndex.search("casmurro", null, null)).containsExactly(1L);
+		assertThat(bookSearchIndex.search("memorias", null, null)).isEmpty();
+	}
+
+	@Test
+	@DisplayName("Should not go back to an older version of a book")
+	void shouldIgnoreOlderVersion() {
+		// Arrange
+		bookSearchIndex.index(1L, 3L, "Memorias postumas", "Arthur", "001");
+
+		// Act
+		bookSearchIndex.index(1L, 2L, "As aventuras", "Arthur", "001");
+
+		// Assert
+		assertThat(bookSearchIndex.search("memorias", null, null)).containsExactly(1L, 3L);
+		assertThat(bookSearchIndex.search("aventuras", null, null)).containsExactly(2L);
+	}
+
+	@Test
+	@DisplayName("Should answer the same after folding the changes into the base")
+	void shouldAnswerTheSameAfterCompacting() {
+		// Arrange
+		bookSearchIndex.index(Book.builder().id(5L).title("Aventuras no mar").author("Ciclano").isbn("005").build());
+		bookSearchIndex.remove(2L);
+
+		// Act
+		bookSearchIndex.compact();
+
+		// Assert
+		assertThat(bookSearchIndex.pendingChanges()).isZero();
+		assertThat(bookSearchIndex.search("aventuras", null, null)).containsExactly(1L, 5L);
+		assertThat(bookSearchIndex.search(null, "arthur", null)).containsExactly(1L, 3L);
+		assertThat(bookSearchIndex.size()).isEqualTo(3);
+	}
+}
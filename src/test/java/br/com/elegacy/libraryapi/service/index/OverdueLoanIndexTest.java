@@ -0,0 +1,165 @@
+package br.com.elegacy.libraryapi.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class OverdueLoanIndexTest {
+
+	private static final LocalDate TODAY = LocalDate.of(2023, 2, 10);
+
+	private OverdueLoanIndex overdueLoanIndex;
+
+	@BeforeEach
+	public void setUp() {
+		overdueLoanIndex = new OverdueLoanIndex();
+		overdueLoanIndex.index(3L, 0L, TODAY.minusDays(4));
+		overdueLoanIndex.index(1L, 0L, TODAY.minusDays(4));
+		overdueLoanIndex.index(2L, 0L, TODAY.minusDays(6));
+		overdueLoanIndex.index(4L, 0L, TODAY);
+	}
+
+	@Test
+	@DisplayName("Should list the open loans of a day")
+	void shouldListLoansOfDay() {
+		assertThat(overdueLoanIndex.snapshot().loansOf(TODAY.minusDays(4))).containsExactly(1L, 3L);
+		assertThat(overdueLoanIndex.snapshot().loansOf(TODAY.minusDays(5))).isEmpty();
+	}
+
+	@Test
+	@DisplayName("Should count the open loans up to a day")
+	void shouldCountLoansUpToDay() {
+		assertThat(overdueLoanIndex.snapshot().countUpTo(TODAY.minusDays(4))).isEqualTo(3);
+		assertThat(overdueLoanIndex.snapshot().countUpTo(TODAY.minusDays(7))).isZero();
+		assertThat(overdueLoanIndex.snapshot().countUpTo(TODAY)).isEqualTo(4);
+	}
+
+	@Test
+	@DisplayName("Should move a loan to the bucket of its new date")
+	void shouldMoveLoanToNewDate() {
+		overdueLoanIndex.index(1L, 1L, TODAY);
+
+		assertThat(overdueLoanIndex.snapshot().loansOf(TODAY.minusDays(4))).containsExactly(3L);
+		assertThat(overdueLoanIndex.snapshot().loansOf(TODAY)).containsExactly(1L, 4L);
+		assertThat(overdueLoanIndex.size()).isEqualTo(4);
+	}
+
+	@Test
+	@DisplayName("Should forget a removed loan")
+	void shouldForgetRemovedLoan() {
+		overdueLoanIndex.remove(2L, 1L);
+		overdueLoanIndex.remove(99L, 1L);
+
+		assertThat(overdueLoanIndex.snapshot().countUpTo(TODAY.minusDays(4))).isEqualTo(2);
+		assertThat(overdueLoanIndex.size()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("Should keep the newest version of a loan, whichever arrives last")
+	void shouldKeepNewestVersion() {
+		overdueLoanIndex.remove(1L, 2L);
+		overdueLoanIndex.index(1L, 1L, TODAY);
+		overdueLoanIndex.index(4L, 3L, TODAY.minusDays(1));
+		overdueLoanIndex.index(4L, 2L, TODAY);
+
+		assertThat(overdueLoanIndex.snapshot().loansOf(TODAY)).isEmpty();
+		assertThat(overdueLoanIndex.snapshot().loansOf(TODAY.minusDays(1))).containsExactly(4L);
+		assertThat(overdueLoanIndex.size()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("Should keep counting right as loans spread over years in both directions")
+	void shouldCountLoansSpreadOverYears() {
+		for (long i = 1; i <= 1000; i++) {
+			overdueLoanIndex.index(100 + i, 0L, TODAY.plusDays(i));
+			overdueLoanIndex.index(2000 + i, 0L, TODAY.minusDays(10 + i));
+		}
+		overdueLoanIndex.remove(101L, 1L);
+		overdueLoanIndex.compact();
+
+		assertThat(overdueLoanIndex.pendingChanges()).isZero();
+		assertThat(overdueLoanIndex.snapshot().countUpTo(TODAY.minusDays(11))).isEqualTo(1000);
+		assertThat(overdueLoanIndex.snapshot().countUpTo(TODAY)).isEqualTo(1004);
+		assertThat(overdueLoanIndex.snapshot().countUpTo(TODAY.plusDays(500))).isEqualTo(1503);
+		assertThat(overdueLoanIndex.snapshot().countUpTo(TODAY.plusYears(10))).isEqualTo(2003);
+		assertThat(overdueLoanIndex.snapshot().countUpTo(TODAY.minusYears(10))).isZero();
+	}
+
+	@Test
+	@DisplayName("Should answer the same after folding the changes into the base")
+	void shouldAnswerSameAfterCompacting() {
+		// Arrange
+		overdueLoanIndex.compact();
+		overdueLoanIndex.index(5L, 0L, TODAY.minusDays(4));
+		overdueLoanIndex.remove(3L, 1L);
+		overdueLoanIndex.index(2L, 1L, TODAY);
+		OverdueLoanIndex.Snapshot before = overdueLoanIndex.snapshot();
+
+		// Act
+		overdueLoanIndex.compact();
+		OverdueLoanIndex.Snapshot after = overdueLoanIndex.snapshot();
+
+		// Assert
+		assertThat(overdueLoanIndex.pendingChanges()).isZero();
+		for (LocalDate day = TODAY.minusDays(7); !day.isAfter(TODAY); day = day.plusDays(1)) {
+			assertThat(after.countUpTo(day)).as("count up to %s", day).isEqualTo(before.countUpTo(day));
+			assertThat(after.loansOf(day)).as("loans of %s", day).isEqualTo(before.loansOf(day));
+		}
+		assertThat(after.size()).isEqualTo(before.size()).isEqualTo(4);
+	}
+
+	@Test
+	@DisplayName("Should not change a snapshot already taken")
+	void shouldNotChangeTakenSnapshot() {
+		// Arrange
+		overdueLoanIndex.compact();
+		OverdueLoanIndex.Snapshot snapshot = overdueLoanIndex.snapshot();
+
+		// Act
+		overdueLoanIndex.remove(1L, 1L);
+		overdueLoanIndex.replace(OverdueLoanIndex.builder().add(7L, 0L, TODAY.minusDays(5)));
+
+		// Assert
+		assertThat(snapshot.countUpTo(TODAY.minusDays(4))).isEqualTo(3);
+		assertThat(snapshot.loansOf(TODAY.minusDays(4))).containsExactly(1L, 3L);
+		assertThat(overdueLoanIndex.snapshot().countUpTo(TODAY.minusDays(4))).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Should replace every loan at once, keeping the changes newer than the rebuild")
+	void shouldReplaceAllLoans() {
+		// Arrange
+		overdueLoanIndex.clear();
+		overdueLoanIndex.index(8L, 2L, TODAY.minusDays(4));
+		overdueLoanIndex.remove(9L, 1L);
+		overdueLoanIndex.index(10L, 0L, TODAY);
+
+		// Act
+		overdueLoanIndex.replace(OverdueLoanIndex.builder()
+				.add(7L, 0L, TODAY.minusDays(5))
+				.add(8L, 1L, TODAY)
+				.add(9L, 0L, TODAY)
+				.add(10L, 0L, TODAY));
+
+		// Assert
+		assertThat(overdueLoanIndex.size()).isEqualTo(3);
+		assertThat(overdueLoanIndex.pendingChanges()).isEqualTo(2);
+		assertThat(overdueLoanIndex.snapshot().countUpTo(TODAY.minusDays(4))).isEqualTo(2);
+		assertThat(overdueLoanIndex.snapshot().loansOf(TODAY)).containsExactly(10L);
+	}
+
+	@Test
+	@DisplayName("Should refuse loans added to a base out of id order")
+	void shouldRefuseLoansOutOfOrder() {
+		Throwable exception = catchThrowable(() -> OverdueLoanIndex.builder()
+				.add(2L, 0L, TODAY)
+				.add(1L, 0L, TODAY));
+
+		assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+	}
+}